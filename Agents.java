@@ -0,0 +1,48 @@
+// Agents class with the bot players by number, as gamePlay's menu offers them
+// gamePlay, Tournament, GameServer and the benchmarks all pick their agents here. The agents keep no state
+// between moves but tables that any thread may use at once, so one of each is shared by every game
+public class Agents {
+    public static final int DEFAULT = 5; // H_MinimaxAlphaBeta, for a number that is not an agent
+
+    private static final SearchAgent[] AGENTS = {
+        null, new Random(), new Minimax(), new MinimaxAlphaBeta(), new H_Minimax(), new H_MinimaxAlphaBeta(),
+        new Mcts(), new ProofNumberSearch(ProofNumberSearch.SEARCH_MEGABYTES)
+    };
+    public static final String[] NAMES = new String[AGENTS.length]; // by number, "" for 0
+
+    static {
+        NAMES[0] = "";
+        for (int i = 1; i < AGENTS.length; i++) {
+            NAMES[i] = AGENTS[i].name();
+        }
+    }
+
+    /**
+     * Tell whether a number is an agent's
+     * @param agent the agent number
+     * @return true if there is an agent with that number
+     */
+    public static boolean isAgent(int agent) {
+        return agent >= 1 && agent < AGENTS.length;
+    }
+
+    /**
+     * Get an agent by its number
+     * @param agent the agent number (see NAMES)
+     * @return the agent, the DEFAULT one for a number that is not one
+     */
+    public static SearchAgent get(int agent) {
+        return isAgent(agent) ? AGENTS[agent] : AGENTS[DEFAULT];
+    }
+
+    /**
+     * Get an agent's move under the limits set on the game (see SearchLimits.of), as gamePlay does
+     * @param agent the agent number (see NAMES)
+     * @param game the game configuration
+     * @param player the current player
+     * @return the agent's move
+     */
+    public static Action move(int agent, PawntasticGame game, int player) {
+        return get(agent).search(game, player, SearchLimits.of(game)).move;
+    }
+}
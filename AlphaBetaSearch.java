@@ -0,0 +1,319 @@
+// AlphaBetaSearch class with the alpha-beta core shared by MinimaxAlphaBeta and H_MinimaxAlphaBeta
+// A negamax principal variation search on int scores: the first move of a node gets the full
+// (alpha, beta) window, every other move a null window around alpha that is only re-searched with
+// the full window if it beats alpha. Iterative deepening re-uses the previous score as the center
+// of an aspiration window. A position and its mirror image share their table entry, and a symmetric
+// position only searches one move of each mirrored pair. The shared table is keyed by the game's
+// settings as well (quiescence, evaluation), so games searched with other settings never mix scores
+public class AlphaBetaSearch {
+    public static final int WIN = 1_000_000; // score of a won game, getUtility scaled
+    public static final int INFINITY = WIN + 1;
+    public static final int EVAL_SCALE = 10_000; // eval (between -1 and 1) scaled, always below WIN
+    public static final int EXACT_DEPTH = TranspositionTable.MAX_DEPTH; // depth that never reaches the horizon
+    private static final int ASPIRATION_WINDOW = EVAL_SCALE / 20;
+
+    /**
+     * search method: negamax alpha-beta with principal variation search
+     * @param game the game configuration
+     * @param b the player to move
+     * @param depth the depth left, EXACT_DEPTH to search to the end of the game
+     * @param alpha the lower bound alpha for Alpha-Beta pruning
+     * @param beta the upper bound beta for Alpha-Beta pruning
+     * @param ply the distance from the root (the root never takes a table cutoff)
+     * @param ctx the search context (time budget, node count, principal variation, move ordering)
+     * @return the score of the position for the player to move, a bound if it is outside (alpha, beta)
+     */
+    static int search(PawntasticGame game, int b, int depth, int alpha, int beta, int ply, SearchContext ctx) {
+        ctx.clearPv(ply);
+        if (ctx.visitNode()) {
+            return 0;
+        }
+        if (ply > 0) {
+            // positions with few pawns are solved already
+            int known = Tablebase.probeAny(game, b);
+            if (known != Tablebase.UNKNOWN) {
+                return Integer.signum(known) * WIN;
+            }
+        }
+        if (depth == 0) {
+            if (game.quiescence) {
+                return quiesce(game, b, alpha, beta, ply, ctx);
+            }
+            if (game.isTerminalState()) {
+                return game.getUtility(b) * WIN;
+            }
+            ctx.reachedHorizon = true;
+            return evaluate(game, b, ctx);
+        }
+
+        TranspositionTable table = TranspositionTable.shared();
+        // a position and its mirror image share an entry, its move is stored for the canonical orientation;
+        // games with other settings score positions differently, so their entries are kept apart
+        long key = game.getCanonicalKey() ^ Zobrist.side(b)
+                ^ Zobrist.settings(game.quiescence, game.evaluation);
+        long entry = table.probe(key);
+        ctx.tableProbes++;
+        if (entry != 0) {
+            ctx.tableHits++;
+        }
+        if (ply > 0 && entry != 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                ctx.reachedHorizon |= TranspositionTable.depth(entry) < EXACT_DEPTH;
+                ctx.tableCutoffs++;
+                return score;
+            }
+        }
+
+        // previous principal variation first, else the table's best move, then the move ordering
+        int[] moves = ctx.moves[ply];
+        int count = game.generateMoves(b, moves);
+        if (game.isTerminalState(b, count)) {
+            return game.getUtility(b) * WIN;
+        }
+        count = game.removeMirrorMoves(moves, count);
+        ctx.expandNode(count);
+        boolean hashMove = ctx.orderPv(moves, count, ply) || (entry != 0
+                && SearchContext.moveToFront(moves, count, game.canonicalMove(TranspositionTable.move(entry))));
+        ctx.ordering.sort(moves, hashMove ? 1 : 0, count, b, ply);
+
+        int alphaOrig = alpha;
+        int childDepth = depth == EXACT_DEPTH ? depth : depth - 1;
+        int best = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int undo = game.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -search(game, -b, childDepth, -beta, -alpha, ply + 1, ctx);
+            } else {
+                ctx.leavePv();
+                score = -search(game, -b, childDepth, -alpha - 1, -alpha, ply + 1, ctx);
+                if (score > alpha && score < beta) {
+                    score = -search(game, -b, childDepth, -beta, -alpha, ply + 1, ctx);
+                }
+            }
+            game.unmakeMove(move, undo);
+            if (ctx.stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) {
+                    ctx.bestMove = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    ctx.updatePv(ply, move);
+                }
+            }
+            if (alpha >= beta) {
+                ctx.cutoff(i);
+                ctx.ordering.cutoff(move, b, ply, depth);
+                table.store(key, depth, TranspositionTable.LOWER, best, game.canonicalMove(move));
+                return best;
+            }
+        }
+        int bound = best <= alphaOrig ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+        table.store(key, depth, bound, best, game.canonicalMove(bestMove));
+        return best;
+    }
+
+    /**
+     * quiesce method: the search past the horizon, until the position is quiet
+     * Only captures and pushes to the row before the last are searched, and the side to move can always
+     * stand pat on eval instead, unless the other side threatens to promote: then every move is searched,
+     * as all but the ones that meet the threat lose. A side that can promote wins on the spot
+     * @param game the game configuration
+     * @param b the player to move
+     * @param alpha the lower bound alpha for Alpha-Beta pruning
+     * @param beta the upper bound beta for Alpha-Beta pruning
+     * @param ply the distance from the root
+     * @param ctx the search context, the node itself was counted by the caller
+     * @return the score of the position for the player to move, a bound if it is outside (alpha, beta)
+     */
+    static int quiesce(PawntasticGame game, int b, int alpha, int beta, int ply, SearchContext ctx) {
+        ctx.clearPv(ply);
+        int[] moves = ctx.moves[ply];
+        int count = game.generateMoves(b, moves);
+        if (game.isTerminalState(b, count)) {
+            return game.getUtility(b) * WIN;
+        }
+        for (int i = 0; i < count; i++) {
+            if (Move.isPromotion(moves[i])) {
+                return WIN;
+            }
+        }
+
+        int n = game.boardSize;
+        boolean threatened = game.getPromotionMove(-b) != 0;
+        int best = -INFINITY;
+        if (!threatened) {
+            ctx.reachedHorizon = true;
+            best = evaluate(game, b, ctx);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        if (ply >= SearchContext.MAX_PLY - 2) {
+            return evaluate(game, b, ctx);
+        }
+        int nearRow = b == PawntasticGame.PLAYER1 ? n - 2 : 1; // the row a pawn promotes from
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (!threatened && !Move.isCapture(move) && Move.to(move) / n != nearRow) {
+                continue;
+            }
+            if (ctx.visitNode()) {
+                return 0;
+            }
+            int undo = game.makeMove(move);
+            int score = -quiesce(game, -b, -beta, -alpha, ply + 1, ctx);
+            game.unmakeMove(move, undo);
+            if (ctx.stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    ctx.updatePv(ply, move);
+                }
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * iterativeDeepening method that runs the iterations of one search thread: depth startDepth,
+     * startDepth + 1, ... up to maxDepth, each in an aspiration window around the previous score
+     * @param game the game configuration
+     * @param player the current player
+     * @param startDepth the first iteration
+     * @param maxDepth the deepest iteration
+     * @param ctx the search context of this thread, holds the score of the result afterwards
+     * @return the best move (packed) of the deepest finished iteration, 0 if none finished
+     */
+    static int iterativeDeepening(PawntasticGame game, int player, int startDepth, int maxDepth,
+            SearchContext ctx) {
+        long start = System.nanoTime();
+        int best = 0;
+        for (int depth = startDepth; depth <= Math.min(maxDepth, SearchContext.MAX_DEPTH); depth++) {
+            int score = aspirationSearch(game, player, depth, ctx.bestScore, best != 0, ctx);
+            if (ctx.stopped) {
+                break;
+            }
+            best = ctx.bestMove;
+            ctx.bestScore = score;
+            ctx.completedDepth = depth;
+            ctx.finishIteration();
+            // nothing was cut off at the horizon, so a deeper iteration would return the same
+            if (!ctx.reachedHorizon || !ctx.timeForNextIteration(start)) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Search the root in a window around a guess, widening the side that fails until the score is inside
+     * @param game the game configuration
+     * @param player the current player
+     * @param depth the depth of the search
+     * @param guess the expected score (the previous iteration's)
+     * @param useWindow false to search with the full window straight away
+     * @param ctx the search context
+     * @return the exact score of the root
+     */
+    private static int aspirationSearch(PawntasticGame game, int player, int depth, int guess, boolean useWindow,
+            SearchContext ctx) {
+        int delta = ASPIRATION_WINDOW;
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        if (useWindow && Math.abs(guess) < WIN) {
+            alpha = Math.max(guess - delta, -INFINITY);
+            beta = Math.min(guess + delta, INFINITY);
+        }
+        while (true) {
+            ctx.startIteration();
+            int score = search(game, player, depth, alpha, beta, 0, ctx);
+            if (ctx.stopped) {
+                return score;
+            }
+            if (score <= alpha && alpha > -INFINITY) {
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta && beta < INFINITY) {
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+            delta *= 4;
+        }
+    }
+
+    /**
+     * Run iterative deepening under search limits, on limits.threads threads (see ParallelSearch), and
+     * record its counters (see SearchMetrics)
+     * @param agent the name of the agent
+     * @param game the game configuration
+     * @param player the current player
+     * @param maxDepth the deepest iteration
+     * @param limits the time budget, node cap and threads (the depth is maxDepth)
+     * @param startNanos System.nanoTime() when the agent started
+     * @return the best move of the deepest finished iteration (the first legal move if none finished)
+     */
+    static SearchResult deepen(String agent, PawntasticGame game, int player, int maxDepth, SearchLimits limits,
+            long startNanos) {
+        if (limits.threads > 1) {
+            ParallelSearch.Result result = ParallelSearch.search(game, player, maxDepth, limits.timeMillis,
+                    limits.nodes, limits.threads);
+            game.nodesSearched += result.nodes;
+            return SearchMetrics.record(agent, game, new SearchResult(result.move,
+                    result.depth == 0 ? Double.NaN : toScore(result.score), result.principalVariation, result.nodes,
+                    result.depth, System.nanoTime() - startNanos, result.metrics));
+        }
+        SearchContext ctx = new SearchContext(limits.timeMillis);
+        ctx.nodeLimit = limits.nodesPerThread();
+        int best = iterativeDeepening(game, player, 1, maxDepth, ctx);
+        game.nodesSearched += ctx.nodes;
+        long elapsed = System.nanoTime() - startNanos;
+        if (best == 0) {
+            // not even depth 1 finished in time
+            game.generateMoves(player, ctx.moves[0]);
+            best = ctx.moves[0][0];
+            return SearchMetrics.record(agent, game, new SearchResult(game.toAction(best), Double.NaN,
+                    new int[] {best}, ctx.nodes, 0, elapsed, SearchMetrics.of(elapsed, ctx)));
+        }
+        return SearchMetrics.record(agent, game, new SearchResult(game.toAction(best), toScore(ctx.bestScore),
+                ctx.getPrincipalVariation(), ctx.nodes, ctx.completedDepth, elapsed, SearchMetrics.of(elapsed, ctx)));
+    }
+
+    /**
+     * Get a score on the scale of SearchResult
+     * @param score the score on the search's int scale
+     * @return 1 or -1 for a won or lost game, else the score over EVAL_SCALE
+     */
+    static double toScore(int score) {
+        return Math.abs(score) >= WIN ? Integer.signum(score) : (double) score / EVAL_SCALE;
+    }
+
+    /**
+     * Get the heuristic score of a position on the search's int scale
+     * @param game the game configuration
+     * @param player the player to move
+     * @param ctx the search context, counts the call
+     * @return eval scaled by EVAL_SCALE
+     */
+    static int evaluate(PawntasticGame game, int player, SearchContext ctx) {
+        ctx.evalCalls++;
+        return (int) Math.round(game.eval(player) * EVAL_SCALE);
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Benchmark class with the fixed positions the benchmarks measure on
+// The positions of a board size are the starting position and the positions after a few plies of seeded
+// random play, the same on every run. The benchmarks themselves are in the JMH module in bench/, which
+// reaches these positions through its Game class (mvn -f bench/pom.xml package, then
+// java -jar bench/target/benchmarks.jar -rf json)
+public class Benchmark {
+    public static final int[] POSITION_PLIES = {0, 4, 8, 12}; // random plies before each benchmark position
+    public static final long POSITION_SEED = 20240601L;
+
+    /**
+     * Position class with a benchmark position and its side to move
+     */
+    public static class Position {
+        public final PawntasticGame game;
+        public final int player;
+
+        public Position(PawntasticGame game, int player) {
+            this.game = game;
+            this.player = player;
+        }
+    }
+
+    /**
+     * Get the benchmark positions of a board size, none of them over
+     * @param size the board size
+     * @return the positions, the starting position first
+     */
+    public static Position[] positions(int size) {
+        SplittableRandom random = new SplittableRandom(POSITION_SEED + size);
+        List<Position> positions = new ArrayList<>();
+        for (int plies : POSITION_PLIES) {
+            PawntasticGame game = new PawntasticGame(size);
+            int player = PawntasticGame.PLAYER2;
+            for (int ply = 0; ply < plies; ply++) {
+                int count = game.countMoves(player);
+                if (game.isTerminalState(player, count))
+                    break;
+                // no move that wins on the spot, so the game is still on at the end
+                int move = game.getMove(player, random.nextInt(count));
+                if (Move.isPromotion(move))
+                    break;
+                game.makeMove(move);
+                player = -player;
+            }
+            if (!game.isTerminalState())
+                positions.add(new Position(game, player));
+        }
+        return positions.toArray(new Position[0]);
+    }
+}
@@ -0,0 +1,97 @@
+// Bitboards class with the masks and shifts behind the PawntasticGame position
+// A cell (row, col) is bit (row * boardSize + col) of a two-word set: boards up to 8x8 fit in
+// the low word and the high word stays empty, the 10x10 board spills its last 36 cells into it
+public class Bitboards {
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = 10;
+
+    // per board size: every cell, every cell but the first/last column, and each row
+    public static final long[] FULL_LO = new long[MAX_SIZE + 1];
+    public static final long[] FULL_HI = new long[MAX_SIZE + 1];
+    public static final long[] NOT_FIRST_COL_LO = new long[MAX_SIZE + 1];
+    public static final long[] NOT_FIRST_COL_HI = new long[MAX_SIZE + 1];
+    public static final long[] NOT_LAST_COL_LO = new long[MAX_SIZE + 1];
+    public static final long[] NOT_LAST_COL_HI = new long[MAX_SIZE + 1];
+    public static final long[][] ROW_LO = new long[MAX_SIZE + 1][];
+    public static final long[][] ROW_HI = new long[MAX_SIZE + 1][];
+    public static final int[][] MIRROR = new int[MAX_SIZE + 1][]; // the cell in the same row, other side of the board
+
+    static {
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            ROW_LO[size] = new long[size];
+            ROW_HI[size] = new long[size];
+            MIRROR[size] = new int[size * size];
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int square = row * size + col;
+                    MIRROR[size][square] = row * size + size - 1 - col;
+                    long bit = 1L << (square & 63);
+                    boolean high = square >= 64;
+                    if (high) {
+                        FULL_HI[size] |= bit;
+                        ROW_HI[size][row] |= bit;
+                        if (col != 0)
+                            NOT_FIRST_COL_HI[size] |= bit;
+                        if (col != size - 1)
+                            NOT_LAST_COL_HI[size] |= bit;
+                    } else {
+                        FULL_LO[size] |= bit;
+                        ROW_LO[size][row] |= bit;
+                        if (col != 0)
+                            NOT_FIRST_COL_LO[size] |= bit;
+                        if (col != size - 1)
+                            NOT_LAST_COL_LO[size] |= bit;
+                    }
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * Low word of a two-word set shifted by a number of cells
+     * @param lo the low word
+     * @param hi the high word
+     * @param d the shift in cells, positive toward higher rows, never 0
+     * @return the low word of the shifted set
+     */
+    public static long shiftLo(long lo, long hi, int d) {
+        return d > 0 ? lo << d : (lo >>> -d) | (hi << (64 + d));
+    }
+
+    /**
+     * High word of a two-word set shifted by a number of cells
+     * @param lo the low word
+     * @param hi the high word
+     * @param d the shift in cells, positive toward higher rows, never 0
+     * @return the high word of the shifted set
+     */
+    public static long shiftHi(long lo, long hi, int d) {
+        return d > 0 ? (hi << d) | (lo >>> (64 - d)) : hi >>> -d;
+    }
+
+    /**
+     * Check whether a cell is in a two-word set
+     * @param lo the low word
+     * @param hi the high word
+     * @param square the cell index, cells off the board are never set
+     * @return true if the cell's bit is set
+     */
+    public static boolean test(long lo, long hi, int square) {
+        if (square < 0)
+            return false;
+        return square < 64 ? (lo >>> square & 1L) != 0 : (hi >>> (square - 64) & 1L) != 0;
+    }
+
+    /**
+     * Count the cells of a two-word set
+     * @param lo the low word
+     * @param hi the high word
+     * @return the number of set bits
+     */
+    public static int count(long lo, long hi) {
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+}
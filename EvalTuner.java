@@ -0,0 +1,307 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+// EvalTuner class that fits the weights of Evaluation to the results of self-play games (Texel's method)
+// generate plays H_MinimaxAlphaBeta against itself from openings of a few random moves, games in parallel, and
+// writes a line per position: the board (as Perft writes it), the side to move and the result of the game
+// (1 BLACK won, -1 WHITE won, 0 draw). Positions where either side can promote are left out, as their value is
+// the search's business and not the heuristic's
+// tune streams the position files once, working out the terms of each batch of lines in parallel into packed
+// arrays, then minimizes the mean squared error between the evaluation (tanh of the weighted terms) and the
+// results by gradient descent with Adam steps; each step's gradient is summed over blocks of positions on the
+// common ForkJoinPool. Every tenth position is held out and the weights with the least error on those are kept
+public class EvalTuner {
+    public static final double LEARNING_RATE = 0.05;
+    private static final int BATCH_LINES = 1 << 16; // lines read before their terms are worked out in parallel
+    private static final int BLOCK = 1 << 14; // positions per task of a gradient
+    private static final int HOLD_OUT = 10; // every HOLD_OUT-th position is for checking the fit only
+
+    /**
+     * Samples class with the terms and results of the positions read so far
+     */
+    private static class Samples {
+        int size;
+        float[] features = new float[Evaluation.FEATURES * 1024]; // FEATURES per position
+        float[] classic = new float[1024]; // the hand-written eval, for comparison
+        byte[] results = new byte[1024]; // for BLACK
+
+        void ensure(int capacity) {
+            if (capacity <= results.length)
+                return;
+            int grown = Math.max(capacity, results.length * 2);
+            features = Arrays.copyOf(features, grown * Evaluation.FEATURES);
+            classic = Arrays.copyOf(classic, grown);
+            results = Arrays.copyOf(results, grown);
+        }
+    }
+
+    /**
+     * Play games of H_MinimaxAlphaBeta against itself and write their positions
+     * @param size the board size
+     * @param games the number of games
+     * @param file the file to write, replaced if it exists
+     * @param depth the cutoff depth of the searches
+     * @param randomPlies the plies played at random at the start of each game, so the games differ
+     * @param threads the number of games played at once
+     * @param seed the seed of the random plies (game i uses seed + i)
+     * @return the number of positions written
+     * @throws IOException if the file cannot be written
+     */
+    public static long generate(int size, int games, Path file, int depth, int randomPlies, int threads, long seed)
+            throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        long positions = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            List<Future<List<String>>> played = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                long gameSeed = seed + i;
+                played.add(pool.submit(() -> selfPlay(size, depth, randomPlies, gameSeed)));
+            }
+            for (Future<List<String>> game : played) {
+                for (String line : game.get()) {
+                    out.write(line);
+                    out.newLine();
+                    positions++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Self-play interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Self-play game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return positions;
+    }
+
+    // play one game and get its position lines, the result filled in at the end
+    private static List<String> selfPlay(int size, int depth, int randomPlies, long seed) {
+        PawntasticGame game = new PawntasticGame(size);
+        game.cutOffDepth = depth;
+        java.util.Random random = new java.util.Random(seed);
+        int[] moves = new int[Move.MAX_MOVES];
+        List<String> positions = new ArrayList<>();
+        int player = PawntasticGame.PLAYER2;
+        for (int ply = 0; !game.isTerminalState(); ply++) {
+            int move;
+            if (ply < randomPlies) {
+                move = moves[random.nextInt(game.generateMoves(player, moves))];
+            } else {
+                if (game.getPromotionMove(player) == 0 && game.getPromotionMove(-player) == 0)
+                    positions.add(Perft.board(game) + " " + (player == PawntasticGame.PLAYER2 ? "W" : "B"));
+                move = game.encodeMove(H_MinimaxAlphaBeta.hMinimaxAlphaBeta(game, player));
+            }
+            game.makeMove(move);
+            player = -player;
+        }
+        int result = game.getUtility(PawntasticGame.PLAYER1);
+        positions.replaceAll(position -> position + " " + result);
+        return positions;
+    }
+
+    /**
+     * Read position files written by generate
+     * @param size the board size of the positions
+     * @param files the files
+     * @return the terms and results of every position
+     * @throws IOException if a file cannot be read
+     * @throws IllegalArgumentException if a line is not a position of the board size
+     */
+    private static Samples read(int size, List<Path> files) throws IOException {
+        Samples samples = new Samples();
+        for (Path file : files) {
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                List<String> batch = new ArrayList<>(BATCH_LINES);
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isEmpty())
+                        batch.add(line);
+                    if (batch.size() == BATCH_LINES) {
+                        parse(size, batch, samples);
+                        batch.clear();
+                    }
+                }
+                parse(size, batch, samples);
+            }
+        }
+        return samples;
+    }
+
+    // work out the terms of a batch of lines in parallel, appending them to the samples
+    private static void parse(int size, List<String> batch, Samples samples) {
+        int base = samples.size;
+        samples.ensure(base + batch.size());
+        IntStream.range(0, batch.size()).parallel().forEach(i -> {
+            String[] parts = batch.get(i).split(" ");
+            if (parts.length != 3)
+                throw new IllegalArgumentException("Not a position line: " + batch.get(i));
+            PawntasticGame game = Perft.parse(parts[0]);
+            if (game.boardSize != size)
+                throw new IllegalArgumentException("Not a " + size + "x" + size + " position: " + batch.get(i));
+            double[] features = new double[Evaluation.FEATURES];
+            Evaluation.features(game, features);
+            for (int f = 0; f < Evaluation.FEATURES; f++)
+                samples.features[(base + i) * Evaluation.FEATURES + f] = (float) features[f];
+            game.evaluation = null;
+            samples.classic[base + i] = (float) game.eval(PawntasticGame.PLAYER1);
+            samples.results[base + i] = Byte.parseByte(parts[2]);
+        });
+        samples.size = base + batch.size();
+    }
+
+    /**
+     * Work out the error of weights and its gradient over the training positions, in parallel
+     * @param samples the positions
+     * @param weights the weights
+     * @return the gradient of the training error, then the training error and the held-out error
+     */
+    private static double[] gradient(Samples samples, double[] weights) {
+        int blocks = (samples.size + BLOCK - 1) / BLOCK;
+        int f = Evaluation.FEATURES;
+        double[] sums = IntStream.range(0, blocks).parallel().mapToObj(block -> {
+            double[] sum = new double[f + 4]; // gradient, train error, train count, held-out error, held-out count
+            double[] features = new double[f];
+            int end = Math.min(samples.size, (block + 1) * BLOCK);
+            for (int i = block * BLOCK; i < end; i++) {
+                for (int k = 0; k < f; k++)
+                    features[k] = samples.features[i * f + k];
+                double value = Evaluation.value(weights, features);
+                double error = value - samples.results[i];
+                if (i % HOLD_OUT == 0) {
+                    sum[f + 2] += error * error;
+                    sum[f + 3]++;
+                    continue;
+                }
+                // d/dw (tanh(w.x) - r)^2 = 2 (tanh(w.x) - r) (1 - tanh^2) x
+                double slope = 2 * error * (1 - value * value);
+                for (int k = 0; k < f; k++)
+                    sum[k] += slope * features[k];
+                sum[f] += error * error;
+                sum[f + 1]++;
+            }
+            return sum;
+        }).reduce(new double[f + 4], (a, b) -> {
+            double[] total = new double[f + 4];
+            for (int k = 0; k < total.length; k++)
+                total[k] = a[k] + b[k];
+            return total;
+        });
+        double[] result = new double[f + 2];
+        for (int k = 0; k < f; k++)
+            result[k] = sums[k] / Math.max(1, sums[f + 1]);
+        result[f] = sums[f] / Math.max(1, sums[f + 1]);
+        result[f + 1] = sums[f + 2] / Math.max(1, sums[f + 3]);
+        return result;
+    }
+
+    // the mean squared error of the hand-written eval on the held-out positions
+    private static double classicError(Samples samples) {
+        return IntStream.range(0, samples.size).parallel().filter(i -> i % HOLD_OUT == 0).mapToDouble(i -> {
+            double error = samples.classic[i] - samples.results[i];
+            return error * error;
+        }).average().orElse(0);
+    }
+
+    /**
+     * Fit the weights to positions
+     * @param samples the positions
+     * @param start the weights to start from
+     * @param epochs the number of gradient steps
+     * @return the weights with the least held-out error
+     */
+    private static double[] fit(Samples samples, double[] start, int epochs) {
+        int f = Evaluation.FEATURES;
+        double[] weights = start.clone();
+        double[] best = start.clone();
+        double bestError = Double.MAX_VALUE;
+        double[] m = new double[f];
+        double[] v = new double[f];
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double[] gradient = gradient(samples, weights);
+            if (gradient[f + 1] < bestError) {
+                bestError = gradient[f + 1];
+                best = weights.clone();
+            }
+            if (epoch == 1 || epoch % 50 == 0)
+                System.out.printf("epoch %4d: training error %.5f, held-out error %.5f%n", epoch, gradient[f],
+                        gradient[f + 1]);
+            // Adam: steps scaled by running averages of the gradient and its square
+            for (int k = 0; k < f; k++) {
+                m[k] = 0.9 * m[k] + 0.1 * gradient[k];
+                v[k] = 0.999 * v[k] + 0.001 * gradient[k] * gradient[k];
+                double mHat = m[k] / (1 - Math.pow(0.9, epoch));
+                double vHat = v[k] / (1 - Math.pow(0.999, epoch));
+                weights[k] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + 1e-9);
+            }
+        }
+        double last = gradient(samples, weights)[f + 1];
+        return last < bestError ? weights : best;
+    }
+
+    /**
+     * Generate self-play positions or fit the weights to them
+     * Usage: java EvalTuner generate boardSize games file [depth] [randomPlies] [threads] [seed]
+     *        java EvalTuner tune boardSize epochs weightsFile positionFile...
+     * Self-play searches with the hand-written eval, or with the weights of eval-<boardSize>.txt when run with
+     * -Dpawntastic.eval=tuned (see Evaluation.forSize); tune starts from the weights in weightsFile if
+     * it exists and replaces it
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 4 && args[0].equals("generate")) {
+            int size = Integer.parseInt(args[1]);
+            int games = Integer.parseInt(args[2]);
+            Path file = Paths.get(args[3]);
+            int depth = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+            int randomPlies = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+            int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+            long seed = args.length > 7 ? Long.parseLong(args[7]) : 1;
+            long start = System.nanoTime();
+            long positions = generate(size, games, file, depth, randomPlies, threads, seed);
+            System.out.printf("Played %d games of %dx%d at depth %d on %d threads in %.1f s, wrote %d positions to %s%n",
+                    games, size, size, depth, threads, (System.nanoTime() - start) / 1e9, positions, file);
+            return;
+        }
+        if (args.length >= 5 && args[0].equals("tune")) {
+            int size = Integer.parseInt(args[1]);
+            int epochs = Integer.parseInt(args[2]);
+            Path weightsFile = Paths.get(args[3]);
+            List<Path> files = new ArrayList<>();
+            for (int i = 4; i < args.length; i++)
+                files.add(Paths.get(args[i]));
+            double[] start = Files.exists(weightsFile) ? Evaluation.open(weightsFile).getWeights()
+                    : Evaluation.DEFAULT_WEIGHTS;
+
+            long begin = System.nanoTime();
+            Samples samples = read(size, files);
+            System.out.printf("Read %d positions in %.1f s, hand-written eval held-out error %.5f%n", samples.size,
+                    (System.nanoTime() - begin) / 1e9, classicError(samples));
+            begin = System.nanoTime();
+            double[] weights = fit(samples, start, epochs);
+            double[] errors = gradient(samples, weights);
+            System.out.printf("Fitted in %.1f s: training error %.5f, held-out error %.5f%n",
+                    (System.nanoTime() - begin) / 1e9, errors[Evaluation.FEATURES], errors[Evaluation.FEATURES + 1]);
+            for (int i = 0; i < Evaluation.FEATURES; i++)
+                System.out.printf("  %-15s %9.4f%n", Evaluation.NAMES[i], weights[i]);
+            new Evaluation(size, weights).write(weightsFile, "fitted to " + samples.size + " positions of "
+                    + String.join(" ", Arrays.copyOfRange(args, 4, args.length)));
+            System.out.println("Wrote " + weightsFile);
+            return;
+        }
+        System.out.println("Usage: java EvalTuner generate boardSize games file [depth] [randomPlies] [threads] [seed]");
+        System.out.println("       java EvalTuner tune boardSize epochs weightsFile positionFile...");
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Evaluation class with a heuristic made of weighted terms, the weights fitted to game results (see EvalTuner)
+// The terms are counted for BLACK minus WHITE: pawns, cubic advancement (as the hand-written eval), passed pawns
+// (no enemy pawn ahead on their own or the next columns) and how far they got, pawns whose way forward is blocked,
+// and the moves each side has. Their weighted sum goes through tanh, so the value stays between -1 and 1 like
+// the hand-written eval and reads as the expected result of the game
+// The hand-written eval stays the default. The tuned weights are used once registered, or, when run with
+// -Dpawntastic.eval=tuned, read from eval-<size>.txt in the working directory; PawntasticGame keeps the
+// hand-written eval for board sizes without them
+public class Evaluation {
+    public static final int MATERIAL = 0;
+    public static final int ADVANCE = 1;
+    public static final int PASSED = 2;
+    public static final int PASSED_ADVANCE = 3;
+    public static final int BLOCKED = 4;
+    public static final int MOBILITY = 5;
+    public static final int FEATURES = 6;
+    public static final String[] NAMES = {"material", "advance", "passed", "passed_advance", "blocked", "mobility"};
+    // the tuner's starting point, roughly what a pawn more, a pawn further, etc. is worth
+    public static final double[] DEFAULT_WEIGHTS = {0.3, 0.5, 0.2, 1.0, -0.1, 0.1};
+    public static final String PROPERTY = "pawntastic.eval"; // "tuned" to load the weight files, see forSize
+
+    private static final Evaluation NONE = new Evaluation(0, new double[FEATURES]);
+    private static final AtomicReferenceArray<Evaluation> REGISTRY =
+            new AtomicReferenceArray<>(Bitboards.MAX_SIZE + 1);
+
+    // the cells a pawn on a cell has ahead of it on its own and the next columns, per board size and cell
+    private static final long[][] FRONT1_LO = new long[Bitboards.MAX_SIZE + 1][];
+    private static final long[][] FRONT1_HI = new long[Bitboards.MAX_SIZE + 1][];
+    private static final long[][] FRONT2_LO = new long[Bitboards.MAX_SIZE + 1][];
+    private static final long[][] FRONT2_HI = new long[Bitboards.MAX_SIZE + 1][];
+
+    static {
+        for (int size = Bitboards.MIN_SIZE; size <= Bitboards.MAX_SIZE; size++) {
+            FRONT1_LO[size] = new long[size * size];
+            FRONT1_HI[size] = new long[size * size];
+            FRONT2_LO[size] = new long[size * size];
+            FRONT2_HI[size] = new long[size * size];
+            for (int square = 0; square < size * size; square++) {
+                int row = square / size;
+                int col = square % size;
+                for (int ahead = 0; ahead < size * size; ahead++) {
+                    if (Math.abs(ahead % size - col) > 1)
+                        continue;
+                    long bit = 1L << (ahead & 63);
+                    if (ahead / size > row) {
+                        if (ahead < 64)
+                            FRONT1_LO[size][square] |= bit;
+                        else
+                            FRONT1_HI[size][square] |= bit;
+                    } else if (ahead / size < row) {
+                        if (ahead < 64)
+                            FRONT2_LO[size][square] |= bit;
+                        else
+                            FRONT2_HI[size][square] |= bit;
+                    }
+                }
+            }
+        }
+    }
+
+    public final int boardSize;
+    public final long key; // hash of the weights, to keep their search scores apart (see Zobrist.settings)
+    private final double[] weights;
+
+    /**
+     * Constructor for an evaluation
+     * @param boardSize the board size
+     * @param weights the weight of each term, FEATURES of them (copied)
+     */
+    public Evaluation(int boardSize, double[] weights) {
+        if (weights.length != FEATURES)
+            throw new IllegalArgumentException("Expected " + FEATURES + " weights, got " + weights.length);
+        this.boardSize = boardSize;
+        this.weights = weights.clone();
+        long hash = 0x5EED_E7A1L;
+        for (double weight : weights)
+            hash = (hash ^ Double.doubleToLongBits(weight)) * 0x9E3779B97F4A7C15L;
+        this.key = hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Get the weights
+     * @return a copy of the weight of each term
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * The value of a position's terms under these weights
+     * @param features the terms, see features
+     * @return tanh of the weighted terms, for BLACK
+     */
+    public double value(double[] features) {
+        return value(weights, features);
+    }
+
+    /**
+     * The value of weighted terms
+     * @param weights the weight of each term
+     * @param features the terms
+     * @return tanh of the weighted sum, for BLACK
+     */
+    public static double value(double[] weights, double[] features) {
+        double sum = 0;
+        for (int i = 0; i < FEATURES; i++)
+            sum += weights[i] * features[i];
+        // tanh through exp, which the JIT compiles to an intrinsic where Math.tanh is a library call
+        double e = Math.exp(-2 * Math.abs(sum));
+        double tanh = (1 - e) / (1 + e);
+        return sum < 0 ? -tanh : tanh;
+    }
+
+    /**
+     * Work out the terms of a position, each of them BLACK's count minus WHITE's
+     * Counts that grow with the board (pawns, moves) are divided by the board size and the advancement terms
+     * by the most a pawn can advance, so weights fitted on one board size are a fair start on another
+     * @param game the game configuration
+     * @param features where the FEATURES terms go
+     */
+    public static void features(PawntasticGame game, double[] features) {
+        int n = game.boardSize;
+        long blackLo = game.getPawnsLo(PawntasticGame.PLAYER1);
+        long blackHi = game.getPawnsHi(PawntasticGame.PLAYER1);
+        long whiteLo = game.getPawnsLo(PawntasticGame.PLAYER2);
+        long whiteHi = game.getPawnsHi(PawntasticGame.PLAYER2);
+        long occupiedLo = blackLo | whiteLo;
+        long occupiedHi = blackHi | whiteHi;
+        double steps = n - 2; // from the starting row to the last one
+
+        features[MATERIAL] = (double) (Long.bitCount(blackLo) + Long.bitCount(blackHi)
+                - Long.bitCount(whiteLo) - Long.bitCount(whiteHi)) / n;
+        features[ADVANCE] = (game.getAdvancement(PawntasticGame.PLAYER1) - game.getAdvancement(PawntasticGame.PLAYER2))
+                / (steps * steps * steps);
+
+        // a pawn is blocked when the cell ahead of it is taken (it can still capture)
+        long blocked1Lo = blackLo & Bitboards.shiftLo(occupiedLo, occupiedHi, -n);
+        long blocked1Hi = blackHi & Bitboards.shiftHi(occupiedLo, occupiedHi, -n);
+        long blocked2Lo = whiteLo & Bitboards.shiftLo(occupiedLo, occupiedHi, n);
+        long blocked2Hi = whiteHi & Bitboards.shiftHi(occupiedLo, occupiedHi, n);
+        features[BLOCKED] = Long.bitCount(blocked1Lo) + Long.bitCount(blocked1Hi)
+                - Long.bitCount(blocked2Lo) - Long.bitCount(blocked2Hi);
+
+        int passed = 0;
+        double passedAdvance = 0;
+        long[] front1Lo = FRONT1_LO[n];
+        long[] front1Hi = FRONT1_HI[n];
+        long[] front2Lo = FRONT2_LO[n];
+        long[] front2Hi = FRONT2_HI[n];
+        for (int word = 0; word < 2; word++) {
+            long black = word == 0 ? blackLo : blackHi;
+            while (black != 0) {
+                int square = Long.numberOfTrailingZeros(black) + 64 * word;
+                black &= black - 1;
+                if ((front1Lo[square] & whiteLo) == 0 && (front1Hi[square] & whiteHi) == 0) {
+                    double progress = (square / n - 1) / steps;
+                    passed++;
+                    passedAdvance += progress * progress;
+                }
+            }
+            long white = word == 0 ? whiteLo : whiteHi;
+            while (white != 0) {
+                int square = Long.numberOfTrailingZeros(white) + 64 * word;
+                white &= white - 1;
+                if ((front2Lo[square] & blackLo) == 0 && (front2Hi[square] & blackHi) == 0) {
+                    double progress = (n - 2 - square / n) / steps;
+                    passed--;
+                    passedAdvance -= progress * progress;
+                }
+            }
+        }
+        features[PASSED] = passed;
+        features[PASSED_ADVANCE] = passedAdvance;
+        features[MOBILITY] = (double) (game.countMoves(PawntasticGame.PLAYER1) - game.countMoves(PawntasticGame.PLAYER2)) / n;
+    }
+
+    /**
+     * Read a weights file: a "size" line and a line per term with its name and weight, # starting a comment
+     * @param file the file
+     * @return the evaluation
+     * @throws IOException if the file cannot be read or a line is not understood
+     */
+    public static Evaluation open(Path file) throws IOException {
+        int size = 0;
+        double[] weights = new double[FEATURES];
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int comment = line.indexOf('#');
+            String[] parts = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (parts.length == 1 && parts[0].isEmpty())
+                continue;
+            if (parts.length != 2)
+                throw new IOException("Invalid line in " + file + ": " + line);
+            try {
+                if (parts[0].equals("size")) {
+                    size = Integer.parseInt(parts[1]);
+                    continue;
+                }
+                int feature = List.of(NAMES).indexOf(parts[0]);
+                if (feature < 0)
+                    throw new IOException("Unknown term " + parts[0] + " in " + file);
+                weights[feature] = Double.parseDouble(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid number in " + file + ": " + line);
+            }
+        }
+        if (size < Bitboards.MIN_SIZE || size > Bitboards.MAX_SIZE)
+            throw new IOException("Invalid board size " + size + " in " + file);
+        return new Evaluation(size, weights);
+    }
+
+    /**
+     * Write the weights as open reads them
+     * @param file the file to write, replaced if it exists
+     * @param comment a line to put at the top, null for none
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file, String comment) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (comment != null)
+            lines.add("# " + comment);
+        lines.add("size " + boardSize);
+        for (int i = 0; i < FEATURES; i++)
+            lines.add(NAMES[i] + " " + weights[i]);
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the evaluation of a board size: the registered one, else, if the system property PROPERTY is
+     * "tuned", the file eval-<size>.txt from the working directory, loaded on first use
+     * @param size the board size
+     * @return the evaluation, null if there is none for the size (the hand-written eval is used)
+     */
+    public static Evaluation forSize(int size) {
+        if (size < 0 || size > Bitboards.MAX_SIZE)
+            return null;
+        Evaluation evaluation = REGISTRY.get(size);
+        if (evaluation == null) {
+            evaluation = NONE;
+            Path file = Paths.get(defaultFileName(size));
+            if ("tuned".equals(System.getProperty(PROPERTY)) && Files.isReadable(file)) {
+                try {
+                    Evaluation loaded = open(file);
+                    if (loaded.boardSize != size)
+                        throw new IOException("the weights are for size " + loaded.boardSize);
+                    evaluation = loaded;
+                } catch (IOException e) {
+                    System.err.println("Ignoring evaluation weights " + file + ": " + e.getMessage());
+                }
+            }
+            if (!REGISTRY.compareAndSet(size, null, evaluation))
+                evaluation = REGISTRY.get(size);
+        }
+        return evaluation == NONE ? null : evaluation;
+    }
+
+    /**
+     * Use an evaluation for its board size in the games created from now on
+     * @param evaluation the evaluation, replaces the one loaded for the size before
+     */
+    public static void register(Evaluation evaluation) {
+        REGISTRY.set(evaluation.boardSize, evaluation);
+    }
+
+    /**
+     * Get the name of the file forSize looks for with -Dpawntastic.eval=tuned
+     * @param size the board size
+     * @return the file name
+     */
+    public static String defaultFileName(int size) {
+        return "eval-" + size + ".txt";
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// GameClientSimulator class that loads a GameServer with many clients playing at once
+// Every client opens its own connection and plays games against a server agent with random legal moves,
+// keeping a copy of the game to pick them. The time from sending a MOVE to getting the whole answer back
+// (the agent's move, or the end of the game) is the move latency; the report has its percentiles over
+// all clients together with the moves per second of the whole run
+public class GameClientSimulator {
+
+    /**
+     * Play the games of one client
+     * @param host the server host
+     * @param port the server port
+     * @param games the games to play
+     * @param size the board size
+     * @param agent the server agent
+     * @param depth the cutoff depth of the agent
+     * @param seed the seed of the client's moves
+     * @return the latency of every move in nanoseconds
+     * @throws IOException if the connection fails or the server answers with an error
+     */
+    public static long[] playClient(String host, int port, int games, int size, int agent, int depth, long seed)
+            throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] latencies = new long[16];
+        int count = 0;
+        try (Socket socket = new Socket(host, port);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            for (int g = 0; g < games; g++) {
+                // take turns playing WHITE and BLACK
+                boolean white = g % 2 == 0;
+                int me = white ? PawntasticGame.PLAYER2 : PawntasticGame.PLAYER1;
+                PawntasticGame game = new PawntasticGame(size);
+                out.println("NEW " + size + " " + agent + " " + (white ? "W" : "B") + " " + depth);
+                expect(in, "OK");
+                boolean over = !white && readBotMove(in, game, -me);
+                while (!over) {
+                    int moveCount = game.countMoves(me);
+                    Action move = game.toAction(game.getMove(me, random.nextInt(moveCount)));
+                    long start = System.nanoTime();
+                    out.println("MOVE " + game.moveToString(move));
+                    game.makeMoves(move);
+                    if (game.isTerminalState()) {
+                        expect(in, "END");
+                        over = true;
+                    } else {
+                        over = readBotMove(in, game, -me);
+                    }
+                    if (count == latencies.length)
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    latencies[count++] = System.nanoTime() - start;
+                }
+            }
+            out.println("QUIT");
+            expect(in, "BYE");
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    // read the agent's move into the game, true if it ends the game
+    private static boolean readBotMove(BufferedReader in, PawntasticGame game, int player) throws IOException {
+        String line = expect(in, "BOT");
+        String[] parts = line.split(" ");
+        Action move = game.processUserMove(parts[1] + " " + parts[2] + " " + parts[3] + " " + parts[4], player);
+        if (move == null)
+            throw new IOException("Server played an illegal move: " + line);
+        game.makeMoves(move);
+        if (game.isTerminalState()) {
+            expect(in, "END");
+            return true;
+        }
+        return false;
+    }
+
+    // read a line that starts with the word, or fail
+    private static String expect(BufferedReader in, String word) throws IOException {
+        String line = in.readLine();
+        if (line == null || !line.startsWith(word))
+            throw new IOException("Expected " + word + " but got " + line);
+        return line;
+    }
+
+    /**
+     * Run the clients and print the latency report
+     * Usage: java GameClientSimulator [host] [port] [clients] [gamesPerClient] [boardSize] [agent] [depth]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int size = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+        int agent = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+        int depth = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+
+        ExecutorService pool = GameServer.newSessionExecutor();
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            long seed = i;
+            results.add(pool.submit(() -> playClient(host, port, games, size, agent, depth, seed)));
+        }
+        long[] all = new long[0];
+        int failed = 0;
+        for (Future<long[]> result : results) {
+            try {
+                long[] latencies = result.get();
+                int old = all.length;
+                all = Arrays.copyOf(all, old + latencies.length);
+                System.arraycopy(latencies, 0, all, old, latencies.length);
+            } catch (ExecutionException e) {
+                failed++;
+                System.err.println("Client failed: " + e.getCause().getMessage());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdownNow();
+
+        Arrays.sort(all);
+        System.out.printf("%d clients (%d failed), %d games each, %dx%d against agent %d at depth %d%n", clients,
+                failed, games, size, size, agent, depth);
+        System.out.printf("%d moves in %.1f s, %.0f moves/s%n", all.length, seconds, all.length / seconds);
+        if (all.length > 0) {
+            System.out.printf("move latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", percentile(all, 50) / 1e6,
+                    percentile(all, 99) / 1e6, all[all.length - 1] / 1e6);
+        }
+    }
+
+    // the nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
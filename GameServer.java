@@ -0,0 +1,271 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// GameServer class that hosts many games at once over a line-based protocol on a socket
+// Every connection is a session with its own game and thread. The session threads only read and
+// write lines, a bot move runs on a fixed pool of search threads, one per core, with a bounded queue,
+// so busy agents never hold up the I/O of the other sessions. Sessions run on virtual threads when
+// the JDK has them (21 and up) and on a cached pool of platform threads otherwise
+//
+// Protocol, one command per line, moves written as in gamePlay (Ex: A 2 A 3):
+//   NEW size agent W|B [depth] [timeMillis]   start a game as WHITE or BLACK against an agent (1-7)
+//                                             -> OK size W|B, then BOT move if the agent opens
+//   MOVE fromCol fromRow toCol toRow          -> BOT move, END WHITE|BLACK|DRAW once the game is over
+//   MOVES                                     -> MOVES move,move,...
+//   BOARD                                     -> BOARD row/row/... from the top row, B, W or . per cell
+//   QUIT                                      -> BYE
+// anything that goes wrong is answered with ERR and a message
+public class GameServer {
+    public static final int DEFAULT_PORT = 7878;
+    public static final int SEARCH_QUEUE = 10_000; // bot moves waiting for a search thread before new ones are turned down
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final ExecutorService searchPool;
+
+    /**
+     * Constructor for the server, listening straight away
+     * @param port the port to listen on, 0 for any free one
+     * @param searchThreads the threads of the search pool
+     * @throws IOException if the port cannot be opened
+     */
+    public GameServer(int port, int searchThreads) throws IOException {
+        serverSocket = new ServerSocket(port);
+        sessions = newSessionExecutor();
+        searchPool = new ThreadPoolExecutor(searchThreads, searchThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SEARCH_QUEUE));
+    }
+
+    /**
+     * Get an executor that runs every task on a new virtual thread if the JDK has them,
+     * else on a cached pool of platform threads
+     * @return the executor
+     */
+    public static ExecutorService newSessionExecutor() {
+        try {
+            // looked up at run time, the code still builds and runs on JDK 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Get the port the server listens on
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accept connections until the server is closed, each one a session
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> new Session(socket).run());
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    System.err.println("Accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop accepting connections and stop the threads
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Close failed: " + e.getMessage());
+        }
+        sessions.shutdownNow();
+        searchPool.shutdownNow();
+    }
+
+    /**
+     * Session class with the game of one connection
+     */
+    private class Session {
+        private final Socket socket;
+        private PawntasticGame game;
+        private int agent;
+        private int human; // the side of the client
+        private int toMove;
+
+        Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        void run() {
+            try (Socket s = socket;
+                    BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                    PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] parts = line.trim().split("\\s+");
+                    String command = parts[0].toUpperCase();
+                    if (command.equals("QUIT")) {
+                        out.println("BYE");
+                        break;
+                    }
+                    try {
+                        handle(command, parts, line.trim(), out);
+                    } catch (IllegalArgumentException e) {
+                        out.println("ERR " + e.getMessage());
+                    }
+                    out.flush();
+                }
+                out.flush();
+            } catch (IOException e) {
+                // the client went away, the session just ends
+            }
+        }
+
+        /**
+         * Answer one command
+         * @param command the command word, upper case
+         * @param parts the words of the line
+         * @param line the whole line
+         * @param out where the answer goes
+         */
+        private void handle(String command, String[] parts, String line, PrintWriter out) {
+            if (command.equals("NEW")) {
+                if (parts.length < 4)
+                    throw new IllegalArgumentException("usage: NEW size agent W|B [depth] [timeMillis]");
+                PawntasticGame newGame = new PawntasticGame(Integer.parseInt(parts[1]));
+                int newAgent = Integer.parseInt(parts[2]);
+                if (!Agents.isAgent(newAgent))
+                    throw new IllegalArgumentException("unknown agent " + newAgent);
+                String color = parts[3].toUpperCase();
+                if (!color.equals("W") && !color.equals("B"))
+                    throw new IllegalArgumentException("color must be W or B");
+                newGame.cutOffDepth = parts.length > 4 ? Integer.parseInt(parts[4]) : H_MinimaxAlphaBeta.DEFAULT_DEPTH;
+                newGame.moveTimeMillis = parts.length > 5 ? Long.parseLong(parts[5]) : 0;
+                newGame.userColor = color;
+                game = newGame;
+                agent = newAgent;
+                human = color.equals("W") ? PawntasticGame.PLAYER2 : PawntasticGame.PLAYER1;
+                toMove = PawntasticGame.PLAYER2; // WHITE plays first
+                out.println("OK " + game.boardSize + " " + color);
+                if (human != toMove) {
+                    try {
+                        botMove(out);
+                    } catch (IllegalArgumentException e) {
+                        game = null; // the agent never opened, the client starts over with NEW
+                        throw e;
+                    }
+                }
+            } else if (command.equals("MOVE")) {
+                if (game == null || game.isTerminalState())
+                    throw new IllegalArgumentException("no game running, start one with NEW");
+                if (toMove != human)
+                    throw new IllegalArgumentException("not your turn");
+                Action move = game.processUserMove(String.join(" ", Arrays.copyOfRange(parts, 1, parts.length)), human);
+                if (move == null)
+                    throw new IllegalArgumentException("illegal move");
+                int undo = game.makeMoves(move);
+                toMove = -toMove;
+                if (!reportEnd(out)) {
+                    try {
+                        botMove(out);
+                    } catch (IllegalArgumentException e) {
+                        // the agent did not answer, take the move back so the client can send it again
+                        game.unmakeMove(move, undo);
+                        toMove = -toMove;
+                        throw e;
+                    }
+                }
+            } else if (command.equals("MOVES")) {
+                if (game == null)
+                    throw new IllegalArgumentException("no game running, start one with NEW");
+                StringBuilder moves = new StringBuilder("MOVES");
+                List<Action> legal = game.getAllLegalMoves(toMove);
+                for (int i = 0; i < legal.size(); i++) {
+                    moves.append(i == 0 ? " " : ",").append(game.moveToString(legal.get(i)));
+                }
+                out.println(moves);
+            } else if (command.equals("BOARD")) {
+                if (game == null)
+                    throw new IllegalArgumentException("no game running, start one with NEW");
+                StringBuilder board = new StringBuilder("BOARD ");
+                for (int row = 0; row < game.boardSize; row++) {
+                    if (row > 0)
+                        board.append('/');
+                    for (int col = 0; col < game.boardSize; col++) {
+                        int piece = game.getPiece(row, col);
+                        board.append(piece == PawntasticGame.PLAYER1 ? 'B' : piece == PawntasticGame.PLAYER2 ? 'W' : '.');
+                    }
+                }
+                out.println(board);
+            } else {
+                throw new IllegalArgumentException("unknown command " + command);
+            }
+        }
+
+        // let the agent move on the search pool, and answer with its move; the game is left as it was if it fails
+        private void botMove(PrintWriter out) {
+            Future<Action> search;
+            try {
+                int bot = toMove;
+                search = searchPool.submit(() -> Agents.move(agent, game, bot));
+            } catch (RejectedExecutionException e) {
+                throw new IllegalArgumentException("server busy, try again later");
+            }
+            Action move;
+            try {
+                move = search.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalArgumentException("server shutting down");
+            } catch (ExecutionException e) {
+                throw new IllegalArgumentException("agent failed: " + e.getCause());
+            }
+            // after the agent's search, which finished before get returned
+            out.println("BOT " + game.moveToString(move));
+            game.makeMoves(move);
+            toMove = -toMove;
+            reportEnd(out);
+        }
+
+        // answer END if the game is over
+        private boolean reportEnd(PrintWriter out) {
+            if (!game.isTerminalState())
+                return false;
+            int winner = game.getUtility(PawntasticGame.PLAYER1);
+            out.println("END " + (winner == PawntasticGame.PLAYER1 ? "BLACK" : winner == PawntasticGame.PLAYER2 ? "WHITE" : "DRAW"));
+            return true;
+        }
+    }
+
+    /**
+     * Run the server
+     * Usage: java GameServer [port] [searchThreads]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameServer server = new GameServer(port, threads);
+        System.out.println("Pawntastic server on port " + server.getPort() + ", " + threads + " search threads");
+        server.serve();
+    }
+}
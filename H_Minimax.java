@@ -1,39 +1,64 @@
 // the heuristic minimax implementation
 
-public class H_Minimax {
+public class H_Minimax implements SearchAgent {
     /**
      * maxValue method for the MAX player
      * @param game : the game configuration
      * @param b : the current player
      * @param minimaxPlayer : the minimax player
      * @param depth : the depth of the search
-     * @return : a pair of the best value and the best action
+     * @param ply : the distance from the root
+     * @param ctx : the search context (time budget, node count, principal variation)
+     * @return : the best value (the best root move goes to ctx.bestMove)
      */
-    private static Pair<Double, Action> maxValue(PawntasticGame game, int b, int minimaxPlayer, int depth) {
-        if(game.isTerminalState()){
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
+    private static double maxValue(PawntasticGame game, int b, int minimaxPlayer, int depth, int ply,
+            SearchContext ctx) {
+        ctx.clearPv(ply);
+        if (ctx.visitNode()) {
+            return 0.0;
         }
-
         if (depth == 0) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.eval(minimaxPlayer);
-            return ans;
+            if (game.hMinimaxQuiescence) {
+                return quiescenceValue(game, b, minimaxPlayer, ply, ctx);
+            }
+            if(game.isTerminalState()){
+                return 1.0d * game.getUtility(minimaxPlayer);
+            }
+            ctx.reachedHorizon = true;
+            ctx.evalCalls++;
+            return game.eval(minimaxPlayer);
         }
         
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(-999999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = minValue(newGame, 0 - b, minimaxPlayer, depth - 1);
-            // System.out.println("Max value " + optimalMove.first + " " + newBoard.first);
-            if (newBoard.first > optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
+        int[] moves = ctx.moves[ply];
+        int count = game.generateMoves(b, moves);
+        if (game.isTerminalState(b, count)) {
+            return 1.0d * game.getUtility(minimaxPlayer);
+        }
+        count = game.removeMirrorMoves(moves, count); // mirrored moves have the same value
+        ctx.expandNode(count);
+        ctx.orderPv(moves, count, ply);
+
+        double optimalValue = -999999999.0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (i > 0) {
+                ctx.leavePv();
+            }
+            int undo = game.makeMove(move);
+            double value = minValue(game, 0 - b, minimaxPlayer, depth - 1, ply + 1, ctx);
+            game.unmakeMove(move, undo);
+            if (ctx.stopped) {
+                return optimalValue;
+            }
+            if (value > optimalValue) {
+                optimalValue = value;
+                if (ply == 0) {
+                    ctx.bestMove = move;
+                }
+                ctx.updatePv(ply, move);
             }
         }
-        return optimalMove;
+        return optimalValue;
     }
 
     /**
@@ -42,42 +67,151 @@ public class H_Minimax {
      * @param b the current player
      * @param minimaxPlayer the minimax player
      * @param depth the depth of the search
-     * @return a pair of the best value and the best action
+     * @param ply the distance from the root
+     * @param ctx the search context (time budget, node count, principal variation)
+     * @return the best value
      */
-    private static Pair<Double, Action> minValue(PawntasticGame game, int b, int minimaxPlayer, int depth) {
-        if(game.isTerminalState()){
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
+    private static double minValue(PawntasticGame game, int b, int minimaxPlayer, int depth, int ply,
+            SearchContext ctx) {
+        ctx.clearPv(ply);
+        if (ctx.visitNode()) {
+            return 0.0;
         }
-
         if (depth == 0) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.eval(minimaxPlayer);
-            return ans;
+            if (game.hMinimaxQuiescence) {
+                return quiescenceValue(game, b, minimaxPlayer, ply, ctx);
+            }
+            if(game.isTerminalState()){
+                return 1.0d * game.getUtility(minimaxPlayer);
+            }
+            ctx.reachedHorizon = true;
+            ctx.evalCalls++;
+            return game.eval(minimaxPlayer);
         }
 
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(9999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = maxValue(newGame, 0 - b, minimaxPlayer, depth - 1);
-            // System.out.println("Min value " + optimalMove.first + " " + newBoard.first);
-            if (newBoard.first < optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
+        int[] moves = ctx.moves[ply];
+        int count = game.generateMoves(b, moves);
+        if (game.isTerminalState(b, count)) {
+            return 1.0d * game.getUtility(minimaxPlayer);
+        }
+        count = game.removeMirrorMoves(moves, count); // mirrored moves have the same value
+        ctx.expandNode(count);
+        ctx.orderPv(moves, count, ply);
+
+        double optimalValue = 9999999.0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (i > 0) {
+                ctx.leavePv();
+            }
+            int undo = game.makeMove(move);
+            double value = maxValue(game, 0 - b, minimaxPlayer, depth - 1, ply + 1, ctx);
+            game.unmakeMove(move, undo);
+            if (ctx.stopped) {
+                return optimalValue;
+            }
+            if (value < optimalValue) {
+                optimalValue = value;
+                ctx.updatePv(ply, move);
             }
         }
-        return optimalMove;
+        return optimalValue;
+    }
+
+    /**
+     * Get the value of a horizon node from the quiescence search (see AlphaBetaSearch.quiesce)
+     * @param game the game configuration
+     * @param b the current player
+     * @param minimaxPlayer the minimax player
+     * @param ply the distance from the root
+     * @param ctx the search context
+     * @return the value for the minimax player: 1 or -1 if the game is decided, else eval
+     */
+    private static double quiescenceValue(PawntasticGame game, int b, int minimaxPlayer, int ply,
+            SearchContext ctx) {
+        int score = AlphaBetaSearch.quiesce(game, b, -AlphaBetaSearch.INFINITY, AlphaBetaSearch.INFINITY, ply, ctx);
+        double value = AlphaBetaSearch.toScore(score);
+        return b == minimaxPlayer ? value : -value;
     }
 
     /**
      * minimax method 
+     * Searches to the game's cutOffDepth, or deepens for as long as its moveTimeMillis allows when that is set
      * @param game the game configuration
      * @param player the current player
      * @return the Action that the bot will take after running minimax
      */
     public static Action minimax(PawntasticGame game, int player) {
-        return maxValue(game, player, player, game.cutOffDepth).second;
+        return new H_Minimax().search(game, player, SearchLimits.of(game)).move;
+    }
+
+    /**
+     * minimax method with a time budget: without one it searches straight to maxDepth, with one it
+     * deepens 1, 2, ... (previous principal variation first) until the budget runs out
+     * @param game the game configuration
+     * @param player the current player
+     * @param maxDepth the deepest search
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     * @return the best action of the deepest finished search
+     */
+    public static Action minimax(PawntasticGame game, int player, int maxDepth, long timeMillis) {
+        return new H_Minimax().search(game, player, new SearchLimits(maxDepth, 0, timeMillis, 1)).move;
+    }
+
+    @Override
+    public String name() {
+        return "H_Minimax";
+    }
+
+    /**
+     * Search to the depth limit (H_MinimaxAlphaBeta.DEFAULT_DEPTH without one), or with a time budget or node
+     * cap deepen 1, 2, ... (previous principal variation first) up to it until a limit is reached
+     * Plays the book move straight away when the position is in the opening book, searched at least as deep
+     * @param game the game configuration
+     * @param player the current player
+     * @param limits the depth, time budget and node cap (the search runs on one thread)
+     * @return the best move of the deepest finished search
+     */
+    @Override
+    public SearchResult search(PawntasticGame game, int player, SearchLimits limits) {
+        long start = System.nanoTime();
+        boolean bounded = limits.timeMillis > 0 || limits.nodes > 0;
+        int maxDepth = limits.depth > 0 ? limits.depth : bounded ? SearchContext.MAX_DEPTH
+                : H_MinimaxAlphaBeta.DEFAULT_DEPTH;
+        int book = OpeningBook.bookMove(game, player, bounded ? 0 : maxDepth);
+        if (book != 0) {
+            return SearchResult.unsearched(game, book, Double.NaN, start);
+        }
+        SearchContext ctx = new SearchContext(limits.timeMillis);
+        ctx.nodeLimit = limits.nodes > 0 ? limits.nodes : Long.MAX_VALUE;
+        int best = 0;
+        double score = Double.NaN;
+        maxDepth = Math.min(maxDepth, SearchContext.MAX_DEPTH);
+        for (int depth = bounded ? 1 : maxDepth; depth <= maxDepth; depth++) {
+            ctx.startIteration();
+            double value = maxValue(game, player, player, depth, 0, ctx);
+            if (ctx.stopped) {
+                break;
+            }
+            best = ctx.bestMove;
+            score = value;
+            ctx.completedDepth = depth;
+            ctx.finishIteration();
+            // nothing was cut off at the horizon, so a deeper search would return the same
+            if (!ctx.reachedHorizon || !ctx.timeForNextIteration(start)) {
+                break;
+            }
+        }
+        game.nodesSearched += ctx.nodes;
+        long elapsed = System.nanoTime() - start;
+        if (best == 0) {
+            // not even depth 1 finished in time
+            game.generateMoves(player, ctx.moves[0]);
+            best = ctx.moves[0][0];
+            return SearchMetrics.record(name(), game, new SearchResult(game.toAction(best), Double.NaN,
+                    new int[] {best}, ctx.nodes, 0, elapsed, SearchMetrics.of(elapsed, ctx)));
+        }
+        return SearchMetrics.record(name(), game, new SearchResult(game.toAction(best), score,
+                ctx.getPrincipalVariation(), ctx.nodes, ctx.completedDepth, elapsed, SearchMetrics.of(elapsed, ctx)));
     }
 }
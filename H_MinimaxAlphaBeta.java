@@ -1,94 +1,63 @@
 // Purpose: Implements minimax with alpha beta pruning
-public class H_MinimaxAlphaBeta {
+// The search itself is the principal variation search in AlphaBetaSearch, cut off at a depth
+public class H_MinimaxAlphaBeta implements SearchAgent {
+    public static final int DEFAULT_DEPTH = 5; // depth used when the game has no cutOffDepth
+
     /**
-     * maxValueAlphaBeta method for the MAX player with alpha beta pruning
+     * hMinimaxAlphaBeta method that returns the best action for the current player (using alpha beta pruning)
+     * Searches to the game's cutOffDepth, or deepens for as long as its moveTimeMillis allows when that is set
      * @param game the game configuration
-     * @param b the current player
-     * @param minimaxPlayer the minimax player
-     * @param depth the depth of the search
-     * @param alpha the lower bound alpha for Alpha-Beta pruning
-     * @param beta the upper bound beta for Alpha-Beta pruning
-     * @return a pair of the best value and the best action
+     * @param player the current player
+     * @return the best action for the current player
      */
-    private static Pair<Double, Action> maxValueAlphaBeta(PawntasticGame game, int b, int minimaxPlayer, int depth,
-            Double alpha, Double beta) {
-        if (game.isTerminalState()) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
-        }
 
-        if (depth == 0) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.eval(minimaxPlayer);
-            return ans;
-        }
-        
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(-999999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = minValueAlphaBeta(newGame, 0 - b, minimaxPlayer, depth - 1, alpha, beta);
-            // System.out.println("Max value " + optimalMove.first + " " + newBoard.first);
-            if (newBoard.first > optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
-            }
-            if (optimalMove.first >= beta) {
-                return optimalMove;
-            }
-        }
-        return optimalMove;
+    public static Action hMinimaxAlphaBeta(PawntasticGame game, int player) {
+        return new H_MinimaxAlphaBeta().search(game, player, SearchLimits.of(game)).move;
     }
 
     /**
-     * minValueAlphaBeta method for the MIN player with alpha beta pruning
+     * hMinimaxAlphaBeta method with iterative deepening: searches depth 1, 2, ... up to maxDepth, each
+     * iteration trying the previous principal variation first, and stops when the time budget runs out
+     * Runs on the game's searchThreads threads when that is more than 1 (see ParallelSearch)
      * @param game the game configuration
-     * @param b the current player
-     * @param minimaxPlayer the minimax player
-     * @param depth the depth of the search
-     * @param alpha the lower bound alpha for Alpha-Beta pruning
-     * @param beta the upper bound beta for Alpha-Beta pruning
-     * @return a pair of the best value and the best action
+     * @param player the current player
+     * @param maxDepth the deepest iteration
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     * @return the best action of the deepest finished iteration
      */
+    public static Action hMinimaxAlphaBeta(PawntasticGame game, int player, int maxDepth, long timeMillis) {
+        return new H_MinimaxAlphaBeta().search(game, player,
+                new SearchLimits(maxDepth, 0, timeMillis, game.searchThreads)).move;
+    }
 
-    private static Pair<Double, Action> minValueAlphaBeta(PawntasticGame game, int b, int minimaxPlayer, int depth,
-            Double alpha, Double beta) {
-        if (game.isTerminalState()) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
-        }
-        if (depth == 0) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.eval(minimaxPlayer);
-            return ans;
-        }
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(9999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = maxValueAlphaBeta(newGame, 0 - b, minimaxPlayer, depth - 1, alpha, beta);
-            // System.out.println("Min value " + optimalMove.first + " " + newBoard.first);
-            if (newBoard.first < optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
-            }
-            if (optimalMove.first <= alpha) {
-                return optimalMove;
-            }
-        }
-        return optimalMove;
+    @Override
+    public String name() {
+        return "H_MinimaxAlphaBeta";
     }
 
     /**
-     * hMinimaxAlphaBeta method that returns the best action for the current player (using alpha beta pruning)
+     * Deepen 1, 2, ... up to the depth limit (DEFAULT_DEPTH without one, unlimited if only a time budget or
+     * node cap is set) until a limit is reached
+     * Plays the book move straight away when the position is in the opening book, searched at least as deep
+     * (see OpeningBook), and the tablebase move when it is in a tablebase (see Tablebase)
      * @param game the game configuration
      * @param player the current player
-     * @return the best action for the current player
+     * @param limits the search limits
+     * @return the best move of the deepest finished iteration
      */
-    
-    public static Action hMinimaxAlphaBeta(PawntasticGame game, int player) {
-        return maxValueAlphaBeta(game, player, player, 5, -999999999.0, 9999999.0).second;
+    @Override
+    public SearchResult search(PawntasticGame game, int player, SearchLimits limits) {
+        long start = System.nanoTime();
+        boolean bounded = limits.timeMillis > 0 || limits.nodes > 0;
+        int maxDepth = limits.depth > 0 ? limits.depth : bounded ? SearchContext.MAX_DEPTH : DEFAULT_DEPTH;
+        int book = OpeningBook.bookMove(game, player, bounded ? 0 : maxDepth);
+        if (book != 0) {
+            return SearchResult.unsearched(game, book, Double.NaN, start);
+        }
+        int solved = Tablebase.bestMove(game, player);
+        if (solved != 0) {
+            return SearchResult.unsearched(game, solved, Integer.signum(Tablebase.probeAny(game, player)), start);
+        }
+        return AlphaBetaSearch.deepen(name(), game, player, maxDepth, limits, start);
     }
 }
@@ -0,0 +1,357 @@
+// Mcts class with the Monte Carlo tree search agent (Agent 6)
+// UCT: every playout walks down the tree by the upper confidence bound of the children, adds the
+// children of the node it stops at and plays the game out with random moves, then counts the result
+// into every node on the way. All threads share one tree (tree parallelism) and lock a node only to
+// update it; a node on a thread's path carries a virtual loss until the result is in, so the other
+// threads look at other moves meanwhile. The tree under the position after the opponent's reply is
+// kept for the next move
+public class Mcts implements SearchAgent {
+    public static final long DEFAULT_TIME_MILLIS = 1000; // budget when the game has no moveTimeMillis
+    private static final double EXPLORATION = 1.4; // UCT constant, sqrt(2)
+    private static final int TIME_CHECK_PLAYOUTS = 16; // look at the clock once every this many playouts
+
+    /**
+     * Node class of the search tree
+     */
+    static class Node {
+        final int move; // the move that led here (packed, see Move), 0 at the root
+        final int mover; // the player who made it
+        final long key; // Zobrist key of the position and the side to move
+        volatile Node[] children; // null until the node is expanded
+        volatile int terminal; // the winner + 2 once the node is known to end the game, 0 while it is open
+        int visits;
+        int virtualLosses; // playouts of other threads going through the node right now
+        long points; // 2 per win and 1 per draw of mover
+
+        Node(int move, int mover, long key) {
+            this.move = move;
+            this.mover = mover;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Result class with the move and what it took to find it
+     */
+    public static class Result {
+        public final Action move;
+        public final double score; // for the player to move, from the move's playouts: 2 * points rate - 1
+        public final int[] principalVariation; // the most visited line, packed moves
+        public final long playouts; // playouts of all threads together
+        public final long elapsedNanos;
+        public final int threads;
+
+        public Result(Action move, double score, int[] principalVariation, long playouts, long elapsedNanos,
+                int threads) {
+            this.move = move;
+            this.score = score;
+            this.principalVariation = principalVariation;
+            this.playouts = playouts;
+            this.elapsedNanos = elapsedNanos;
+            this.threads = threads;
+        }
+
+        public double playoutsPerSecond() {
+            return playouts * 1e9 / Math.max(1L, elapsedNanos);
+        }
+    }
+
+    /**
+     * mcts method for the Monte Carlo tree search player
+     * Searches for the game's moveTimeMillis (DEFAULT_TIME_MILLIS if it is not set) on its searchThreads threads,
+     * unless the position is in the opening book (see OpeningBook)
+     * @param game the game configuration
+     * @param player the current player
+     * @return the best action
+     */
+    public static Action mcts(PawntasticGame game, int player) {
+        return new Mcts().search(game, player, SearchLimits.of(game)).move;
+    }
+
+    @Override
+    public String name() {
+        return "Mcts";
+    }
+
+    /**
+     * Grow the tree until the time budget or the playout cap (limits.nodes) runs out, DEFAULT_TIME_MILLIS
+     * when neither is set, unless the position is in the opening book (see OpeningBook)
+     * @param game the game configuration
+     * @param player the current player
+     * @param limits the time budget, playout cap and threads (the depth does not apply)
+     * @return the most visited move, its depth the length of the most visited line, its playouts counted as
+     *         nodes (see SearchMetrics)
+     */
+    @Override
+    public SearchResult search(PawntasticGame game, int player, SearchLimits limits) {
+        long start = System.nanoTime();
+        int book = OpeningBook.bookMove(game, player, 0);
+        if (book != 0) {
+            return SearchResult.unsearched(game, book, Double.NaN, start);
+        }
+        long time = limits.timeMillis > 0 || limits.nodes > 0 ? limits.timeMillis : DEFAULT_TIME_MILLIS;
+        Result result = search(game, player, time, limits.nodes, limits.threads);
+        game.nodesSearched += result.playouts;
+        long elapsed = System.nanoTime() - start;
+        return SearchMetrics.record(name(), game, new SearchResult(result.move, result.score,
+                result.principalVariation, result.playouts, result.principalVariation.length, elapsed,
+                SearchMetrics.ofNodes(elapsed, result.playouts)));
+    }
+
+    /**
+     * search method that grows the tree for a time budget and picks the most visited move
+     * @param game the game configuration
+     * @param player the current player
+     * @param timeMillis the time budget in milliseconds
+     * @param threads the number of threads, the calling thread included
+     * @return the move, with the playouts and time of all threads
+     */
+    public static Result search(PawntasticGame game, int player, long timeMillis, int threads) {
+        return search(game, player, Math.max(1, timeMillis), 0, threads);
+    }
+
+    /**
+     * search method that grows the tree for a time budget or a number of playouts and picks the most visited move
+     * @param game the game configuration
+     * @param player the current player
+     * @param timeMillis the time budget in milliseconds, 0 for none
+     * @param playouts the most playouts of all threads together (each thread gets its share), 0 for no cap
+     * @param threads the number of threads, the calling thread included
+     * @return the move, with the playouts and time of all threads
+     */
+    public static Result search(PawntasticGame game, int player, long timeMillis, long playouts, int threads) {
+        long start = System.nanoTime();
+        long deadline = timeMillis > 0 ? start + timeMillis * 1_000_000L : 0L;
+        long playoutLimit = new SearchLimits(0, playouts, 0, threads).nodesPerThread();
+        Node root = reuse(game.mctsTree, game.getHashKey() ^ Zobrist.side(player));
+        if (root == null) {
+            root = new Node(0, -player, game.getHashKey() ^ Zobrist.side(player));
+        }
+        game.mctsTree = root;
+
+        Worker[] workers = new Worker[Math.max(1, threads)];
+        Thread[] helpers = new Thread[workers.length - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i == 0 ? game : game.cloneGame(), player, root, deadline, playoutLimit, i);
+        }
+        for (int i = 1; i < workers.length; i++) {
+            helpers[i - 1] = new Thread(workers[i], "mcts-" + i);
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
+        }
+        workers[0].run();
+        long total = workers[0].playouts;
+        for (int i = 1; i < workers.length; i++) {
+            try {
+                helpers[i - 1].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            total += workers[i].playouts;
+        }
+
+        Node best = null;
+        if (root.children != null) {
+            for (Node child : root.children) {
+                if (best == null || child.visits > best.visits) {
+                    best = child;
+                }
+            }
+        }
+        int move = best != null ? best.move : 0;
+        if (move == 0) {
+            // the root ends the game, any move will do
+            int[] moves = new int[Move.MAX_MOVES];
+            game.generateMoves(player, moves);
+            move = moves[0];
+            return new Result(game.toAction(move), Double.NaN, new int[] {move}, total, System.nanoTime() - start,
+                    workers.length);
+        }
+        double score = best.visits == 0 ? Double.NaN : (double) best.points / best.visits - 1;
+        return new Result(game.toAction(move), score, mostVisitedLine(best), total, System.nanoTime() - start,
+                workers.length);
+    }
+
+    /**
+     * Follow the most visited child down from a node
+     * @param node the first node of the line
+     * @return the moves of the line, packed
+     */
+    private static int[] mostVisitedLine(Node node) {
+        int[] line = new int[SearchContext.MAX_PLY];
+        int length = 0;
+        while (node != null && node.visits > 0 && length < line.length) {
+            line[length++] = node.move;
+            Node next = null;
+            Node[] children = node.children;
+            if (children != null) {
+                for (Node child : children) {
+                    if (next == null || child.visits > next.visits) {
+                        next = child;
+                    }
+                }
+            }
+            node = next;
+        }
+        return java.util.Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Find the position in the last tree of the game: its root, or two plies down after our move and the reply
+     * @param tree the root of the last search in the game, null if there was none
+     * @param key the key of the position and the side to move
+     * @return the node, null if the last tree does not have it
+     */
+    private static Node reuse(Node tree, long key) {
+        if (tree == null) {
+            return null;
+        }
+        if (tree.key == key) {
+            return tree;
+        }
+        if (tree.children != null) {
+            for (Node child : tree.children) {
+                if (child.children == null) {
+                    continue;
+                }
+                for (Node grandchild : child.children) {
+                    if (grandchild.key == key) {
+                        return grandchild;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Worker class with the game copy, buffers and random numbers of one search thread
+     */
+    private static class Worker implements Runnable {
+        private final PawntasticGame game;
+        private final int player;
+        private final Node root;
+        private final long deadline; // 0 for none
+        private final long playoutLimit;
+        private final PlayoutEngine engine; // the random playouts, with the worker's own random numbers
+        private final Node[] path = new Node[SearchContext.MAX_PLY];
+        private final int[] pathUndo = new int[SearchContext.MAX_PLY]; // to walk back up the tree
+        private final int[] moves = new int[Move.MAX_MOVES];
+        long playouts;
+
+        Worker(PawntasticGame game, int player, Node root, long deadline, long playoutLimit, int seed) {
+            this.game = game;
+            this.player = player;
+            this.root = root;
+            this.deadline = deadline;
+            this.playoutLimit = playoutLimit;
+            this.engine = new PlayoutEngine(new java.util.SplittableRandom(System.nanoTime() ^ ((long) seed << 32)));
+        }
+
+        @Override
+        public void run() {
+            do {
+                for (int i = 0; i < TIME_CHECK_PLAYOUTS && playouts < playoutLimit; i++) {
+                    playout();
+                }
+            } while ((deadline == 0 || System.nanoTime() - deadline < 0) && playouts < playoutLimit);
+        }
+
+        /**
+         * One playout: select, expand, play out at random and count the result up the path
+         */
+        private void playout() {
+            Node node = root;
+            int toMove = player;
+            int length = 0;
+            path[length++] = node;
+            synchronized (node) {
+                node.virtualLosses++;
+            }
+            // walk down while the node is expanded
+            while (node.terminal == 0 && node.children != null) {
+                node = select(node);
+                pathUndo[length] = game.makeMove(node.move);
+                toMove = -toMove;
+                path[length++] = node;
+                synchronized (node) {
+                    node.virtualLosses++;
+                }
+            }
+
+            int winner;
+            if (node.terminal != 0) {
+                winner = node.terminal - 2;
+            } else {
+                int count = game.generateMoves(toMove, moves);
+                if (game.isTerminalState(toMove, count)) {
+                    winner = game.getUtility(PawntasticGame.PLAYER1);
+                    node.terminal = winner + 2;
+                } else {
+                    // one child for a move and its mirror image, their playouts tell the same
+                    expand(node, toMove, game.removeMirrorMoves(moves, count));
+                    winner = engine.playout(game, toMove, true);
+                }
+            }
+
+            for (int i = length - 1; i >= 0; i--) {
+                Node step = path[i];
+                synchronized (step) {
+                    step.virtualLosses--;
+                    step.visits++;
+                    step.points += step.mover == winner ? 2 : winner == 0 ? 1 : 0;
+                }
+                if (i > 0) {
+                    game.unmakeMove(step.move, pathUndo[i]);
+                }
+            }
+            playouts++;
+        }
+
+        /**
+         * Pick the child with the highest upper confidence bound, counting virtual losses as lost playouts
+         * @param node an expanded node
+         * @return the child
+         */
+        private Node select(Node node) {
+            Node[] children = node.children;
+            double logVisits = Math.log(Math.max(1, node.visits + node.virtualLosses));
+            Node best = children[0];
+            double bestBound = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                int visits = child.visits + child.virtualLosses;
+                double bound;
+                if (visits == 0) {
+                    bound = Double.POSITIVE_INFINITY;
+                } else {
+                    bound = child.points / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                }
+                if (bound > bestBound) {
+                    bestBound = bound;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Add the children of a node, unless another thread got there first
+         * @param node the node
+         * @param toMove the player to move at the node
+         * @param count the moves in the moves buffer
+         */
+        private void expand(Node node, int toMove, int count) {
+            Node[] children = new Node[count];
+            for (int i = 0; i < count; i++) {
+                int undo = game.makeMove(moves[i]);
+                children[i] = new Node(moves[i], toMove, game.getHashKey() ^ Zobrist.side(-toMove));
+                game.unmakeMove(moves[i], undo);
+            }
+            synchronized (node) {
+                if (node.children == null) {
+                    node.children = children;
+                }
+            }
+        }
+    }
+}
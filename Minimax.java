@@ -1,29 +1,43 @@
 // The Minimax Algorithm implementation
-public class Minimax {
+public class Minimax implements SearchAgent {
     /**
      * maxValue method for the MAX player
      * @param game the game configuration
      * @param b the current player
      * @param minimaxPlayer the minimax player
-     * @return a pair of the best value and the best action
+     * @param ply the distance from the root
+     * @param ctx the search context (node cap, time budget, principal variation, move buffers)
+     * @return the best value (the best root move goes to ctx.bestMove)
      */
-    private static Pair<Double, Action> maxValue(PawntasticGame game, int b, int minimaxPlayer) {
-        if (game.isTerminalState()) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
+    private static double maxValue(PawntasticGame game, int b, int minimaxPlayer, int ply, SearchContext ctx) {
+        ctx.clearPv(ply);
+        if (ctx.visitNode()) {
+            return 0.0;
         }
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(-999999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = minValue(newGame, 0 - b, minimaxPlayer);
-            if (newBoard.first > optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
+        int[] moves = ctx.moves[ply];
+        int count = game.generateMoves(b, moves);
+        if (game.isTerminalState(b, count)) {
+            return 1.0d * game.getUtility(minimaxPlayer);
+        }
+        count = game.removeMirrorMoves(moves, count); // mirrored moves have the same value
+        ctx.expandNode(count);
+        double optimalValue = -999999999.0;
+        for (int i = 0; i < count; i++) {
+            int undo = game.makeMove(moves[i]);
+            double value = minValue(game, 0 - b, minimaxPlayer, ply + 1, ctx);
+            game.unmakeMove(moves[i], undo);
+            if (ctx.stopped) {
+                return optimalValue;
+            }
+            if (value > optimalValue) {
+                optimalValue = value;
+                if (ply == 0) {
+                    ctx.bestMove = moves[i];
+                }
+                ctx.updatePv(ply, moves[i]);
             }
         }
-        return optimalMove;
+        return optimalValue;
     }
 
     /**
@@ -31,34 +45,86 @@ public class Minimax {
      * @param game the game configuration
      * @param b the current player
      * @param minimaxPlayer the minimax player
-     * @return a pair of the best value and the best action
+     * @param ply the distance from the root
+     * @param ctx the search context (node cap, time budget, principal variation, move buffers)
+     * @return the best value
      */
-    private static Pair<Double, Action> minValue(PawntasticGame game, int b, int minimaxPlayer) {
-        if (game.isTerminalState()) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
+    private static double minValue(PawntasticGame game, int b, int minimaxPlayer, int ply, SearchContext ctx) {
+        ctx.clearPv(ply);
+        if (ctx.visitNode()) {
+            return 0.0;
         }
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(9999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = maxValue(newGame, 0 - b, minimaxPlayer);
-            if (newBoard.first < optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
+        int[] moves = ctx.moves[ply];
+        int count = game.generateMoves(b, moves);
+        if (game.isTerminalState(b, count)) {
+            return 1.0d * game.getUtility(minimaxPlayer);
+        }
+        count = game.removeMirrorMoves(moves, count); // mirrored moves have the same value
+        ctx.expandNode(count);
+        double optimalValue = 9999999.0;
+        for (int i = 0; i < count; i++) {
+            int undo = game.makeMove(moves[i]);
+            double value = maxValue(game, 0 - b, minimaxPlayer, ply + 1, ctx);
+            game.unmakeMove(moves[i], undo);
+            if (ctx.stopped) {
+                return optimalValue;
+            }
+            if (value < optimalValue) {
+                optimalValue = value;
+                ctx.updatePv(ply, moves[i]);
             }
         }
-        return optimalMove;
+        return optimalValue;
     }
 
     /**
      * minimax method for the minimax player
+     * Plays the book move when the opening book has the position solved (see OpeningBook)
      * @param game the game configuration
      * @param player the minimax player
      * @return the best action
      */
     public static Action minimax(PawntasticGame game, int player) {
-        return maxValue(game, player, player).second;
+        return new Minimax().search(game, player, SearchLimits.of(game)).move;
+    }
+
+    @Override
+    public String name() {
+        return "Minimax";
+    }
+
+    /**
+     * Search the whole game tree, unless the time budget or node cap runs out first
+     * @param game the game configuration
+     * @param player the minimax player
+     * @param limits the time budget and node cap (the depth and threads do not apply)
+     * @return the best move with its exact value, or if a limit was reached the best of the root moves
+     *         searched to the end (the first move if none was), not scored
+     */
+    @Override
+    public SearchResult search(PawntasticGame game, int player, SearchLimits limits) {
+        long start = System.nanoTime();
+        int book = OpeningBook.bookMove(game, player, AlphaBetaSearch.EXACT_DEPTH);
+        if (book != 0) {
+            return SearchResult.unsearched(game, book, Double.NaN, start);
+        }
+        SearchContext ctx = new SearchContext(limits.timeMillis);
+        ctx.nodeLimit = limits.nodes > 0 ? limits.nodes : Long.MAX_VALUE;
+        double value = maxValue(game, player, player, 0, ctx);
+        game.nodesSearched += ctx.nodes;
+        long elapsed = System.nanoTime() - start;
+        if (ctx.stopped) {
+            int best = ctx.bestMove;
+            if (best == 0) {
+                game.generateMoves(player, ctx.moves[0]);
+                best = ctx.moves[0][0];
+            }
+            return SearchMetrics.record(name(), game, new SearchResult(game.toAction(best), Double.NaN,
+                    new int[] {best}, ctx.nodes, 0, elapsed, SearchMetrics.of(elapsed, ctx)));
+        }
+        ctx.finishIteration();
+        int[] line = ctx.getPrincipalVariation();
+        return SearchMetrics.record(name(), game, new SearchResult(game.toAction(ctx.bestMove), value, line,
+                ctx.nodes, line.length, elapsed, SearchMetrics.of(elapsed, ctx)));
     }
 }
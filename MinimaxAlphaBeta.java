@@ -1,76 +1,49 @@
 // Minimax with alpha-beta pruning
-public class MinimaxAlphaBeta {
+// The search itself is the principal variation search in AlphaBetaSearch, run to the end of the game
+public class MinimaxAlphaBeta implements SearchAgent {
     /**
-     * maxValueAlphaBeta method for the MAX player with alpha beta pruning
+     * minimaxAlphaBeta method for the minimax player with alpha beta pruning
+     * Runs on the game's searchThreads threads when that is more than 1 (see ParallelSearch)
+     * Plays the book move when the opening book has the position solved (see OpeningBook)
      * @param game the game configuration
-     * @param b the current player
-     * @param minimaxPlayer the minimax player
-     * @param alpha the lower bound alpha for Alpha-Beta pruning
-     * @param beta the upper bound beta for Alpha-Beta pruning
-     * @return a pair of the best value and the best action
+     * @param player the minimax player
+     * @return the best action
      */
-    private static Pair<Double, Action> maxValueAlphaBeta(PawntasticGame game, int b, int minimaxPlayer, Double alpha,
-            Double beta) {
-        if (game.isTerminalState()) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
-        }
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(-999999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = minValueAlphaBeta(newGame, 0 - b, minimaxPlayer, alpha, beta);
-            if (newBoard.first > optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
-            }
-            if (optimalMove.first >= beta) {
-                return optimalMove;
-            }
-        }
-        return optimalMove;
+    public static Action minimaxAlphaBeta(PawntasticGame game, int player) {
+        return new MinimaxAlphaBeta().search(game, player, SearchLimits.of(game)).move;
     }
 
-    /**
-     * minValueAlphaBeta method for the MIN player with alpha beta pruning
-     * @param game the game configuration
-     * @param b the current player
-     * @param minimaxPlayer the minimax player
-     * @param alpha the lower bound alpha for Alpha-Beta pruning
-     * @param beta the upper bound beta for Alpha-Beta pruning
-     * @return a pair of the best value and the best action
-     */
-    private static Pair<Double, Action> minValueAlphaBeta(PawntasticGame game, int b, int minimaxPlayer, Double alpha,
-            Double beta) {
-        if (game.isTerminalState()) {
-            Pair<Double, Action> ans = new Pair<Double, Action>(null, null);
-            ans.first = 1.0d * game.getUtility(minimaxPlayer);
-            return ans;
-        }
-        Pair<Double, Action> optimalMove = new Pair<Double, Action>(9999999.0, null);
-        for (Action a : game.getAllLegalMoves(b)) {
-            PawntasticGame newGame = game.cloneGame();
-            newGame.makeMoves(a);
-            Pair<Double, Action> newBoard = maxValueAlphaBeta(newGame, 0 - b, minimaxPlayer, alpha, beta);
-            if (newBoard.first < optimalMove.first) {
-                optimalMove.first = newBoard.first;
-                optimalMove.second = a;
-            }
-            if (optimalMove.first <= alpha) {
-                return optimalMove;
-            }
-        }
-        return optimalMove;
+    @Override
+    public String name() {
+        return "MinimaxAlphaBeta";
     }
 
     /**
-     * minimaxAlphaBeta method for the minimax player with alpha beta pruning
+     * Solve the position, or deepen toward the end of the game until the time budget or node cap
      * @param game the game configuration
      * @param player the minimax player
-     * @return the best action
+     * @param limits the time budget, node cap and threads (the depth does not apply, the search goes to the end)
+     * @return the best move, with an exact score unless a limit cut the search short
      */
-    public static Action minimaxAlphaBeta(PawntasticGame game, int player) {
-        return maxValueAlphaBeta(game, player, player, -999999999.0, 9999999.0).second;
+    @Override
+    public SearchResult search(PawntasticGame game, int player, SearchLimits limits) {
+        long start = System.nanoTime();
+        int book = OpeningBook.bookMove(game, player, AlphaBetaSearch.EXACT_DEPTH);
+        if (book != 0) {
+            return SearchResult.unsearched(game, book, Double.NaN, start);
+        }
+        if (limits.threads > 1 || limits.timeMillis > 0 || limits.nodes > 0) {
+            // deepening until no line is cut off at the horizon is an exact solve too, and it can stop any time
+            return AlphaBetaSearch.deepen(name(), game, player, SearchContext.MAX_DEPTH, limits, start);
+        }
+        SearchContext ctx = new SearchContext(0);
+        int score = AlphaBetaSearch.search(game, player, AlphaBetaSearch.EXACT_DEPTH, -AlphaBetaSearch.INFINITY,
+                AlphaBetaSearch.INFINITY, 0, ctx);
+        ctx.finishIteration();
+        game.nodesSearched += ctx.nodes;
+        int[] line = ctx.getPrincipalVariation();
+        long elapsed = System.nanoTime() - start;
+        return SearchMetrics.record(name(), game, new SearchResult(game.toAction(ctx.bestMove),
+                AlphaBetaSearch.toScore(score), line, ctx.nodes, line.length, elapsed, SearchMetrics.of(elapsed, ctx)));
     }
 }
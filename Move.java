@@ -0,0 +1,81 @@
+// Move class with the packed int encoding the searchers use instead of Action objects
+// Bits 0-6 hold the from cell and bits 7-13 the to cell (row * boardSize + col), the bits above
+// flag captures, promotions and double pushes. 0 is never a legal move
+public class Move {
+    public static final int CAPTURE = 1 << 14;
+    public static final int PROMOTION = 1 << 15; // the pawn reaches the last row, wins the game
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int MAX_MOVES = 4 * Bitboards.MAX_SIZE; // push, double push and two captures per pawn
+
+    private Move() {
+    }
+
+    /**
+     * Pack a move
+     * @param from the from cell
+     * @param to the to cell
+     * @param flags CAPTURE, PROMOTION and DOUBLE_PUSH or-ed together
+     * @return the packed move
+     */
+    public static int of(int from, int to, int flags) {
+        return from | (to << 7) | flags;
+    }
+
+    /**
+     * Get the from cell of a move
+     * @param move the packed move
+     * @return the cell index
+     */
+    public static int from(int move) {
+        return move & 0x7F;
+    }
+
+    /**
+     * Get the to cell of a move
+     * @param move the packed move
+     * @return the cell index
+     */
+    public static int to(int move) {
+        return (move >>> 7) & 0x7F;
+    }
+
+    /**
+     * Get whether a move captures
+     * @param move the packed move
+     * @return true if it takes an opponent's pawn
+     */
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * Get whether a move promotes
+     * @param move the packed move
+     * @return true if the pawn reaches the last row
+     */
+    public static boolean isPromotion(int move) {
+        return (move & PROMOTION) != 0;
+    }
+
+    /**
+     * Check whether a move is quiet (neither a capture nor a promotion)
+     * @param move the packed move
+     * @return true if the move only pushes a pawn
+     */
+    public static boolean isQuiet(int move) {
+        return (move & (CAPTURE | PROMOTION)) == 0;
+    }
+
+    /**
+     * Get the mirror image of a move, reflected left to right
+     * @param move the packed move, 0 for none
+     * @param boardSize the board size
+     * @return the packed move between the mirrored cells, with the same flags (0 stays 0)
+     */
+    public static int mirror(int move, int boardSize) {
+        if (move == 0)
+            return 0;
+        int[] mirror = Bitboards.MIRROR[boardSize];
+        return of(mirror[from(move)], mirror[to(move)], move & ~0x3FFF);
+    }
+}
@@ -0,0 +1,85 @@
+// MoveOrdering class that sorts the moves of a node so alpha-beta tries the likely best ones first:
+// promotions, then captures, then the killer moves of the ply, then the rest by history score
+// Everything is kept in primitive arrays sized once per search, so ordering a node allocates nothing
+public class MoveOrdering {
+    private static final int PROMOTION_SCORE = 3_000_000;
+    private static final int CAPTURE_SCORE = 2_000_000;
+    private static final int KILLER_SCORE = 1_000_000;
+    private static final int HISTORY_LIMIT = 500_000; // history scores are halved before they reach the killers
+    private static final int HISTORY_MASK = (1 << 14) - 1; // from and to cells of a packed move
+
+    private final int[][] killers = new int[SearchContext.MAX_PLY][2]; // two quiet cutoff moves per ply
+    private final int[][] history = new int[2][HISTORY_MASK + 1]; // per side, by from and to cell
+    private final int[][] scores = new int[SearchContext.MAX_PLY][Move.MAX_MOVES];
+
+    /**
+     * Sort the moves of a node, best first (a stable sort, so equal moves keep their scan order)
+     * @param moves the legal moves of the node (packed, see Move)
+     * @param from the first move to sort, the ones before it (e.g. a hash move) stay in front
+     * @param count the number of moves
+     * @param player the player to move
+     * @param ply the distance from the root
+     */
+    public void sort(int[] moves, int from, int count, int player, int ply) {
+        int[] score = scores[ply];
+        int[] sideHistory = history[side(player)];
+        for (int i = from; i < count; i++) {
+            int move = moves[i];
+            if (Move.isPromotion(move)) {
+                score[i] = PROMOTION_SCORE;
+            } else if (Move.isCapture(move)) {
+                score[i] = CAPTURE_SCORE;
+            } else if (move == killers[ply][0]) {
+                score[i] = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score[i] = KILLER_SCORE;
+            } else {
+                score[i] = sideHistory[move & HISTORY_MASK];
+            }
+        }
+        // insertion sort, move lists are short
+        for (int i = from + 1; i < count; i++) {
+            int move = moves[i];
+            int s = score[i];
+            int j = i - 1;
+            while (j >= from && score[j] < s) {
+                moves[j + 1] = moves[j];
+                score[j + 1] = score[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            score[j + 1] = s;
+        }
+    }
+
+    /**
+     * Remember a move that caused a cutoff
+     * @param move the packed move
+     * @param player the player who made it
+     * @param ply the distance from the root
+     * @param depth the depth left at the node
+     */
+    public void cutoff(int move, int player, int ply, int depth) {
+        if (!Move.isQuiet(move)) {
+            return; // captures and promotions are tried early anyway
+        }
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] sideHistory = history[side(player)];
+        int d = Math.min(depth, SearchContext.MAX_PLY); // exact searches pass a depth that never runs out
+        sideHistory[move & HISTORY_MASK] += d * d;
+        if (sideHistory[move & HISTORY_MASK] > HISTORY_LIMIT) {
+            for (int[] table : history) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] >>= 1;
+                }
+            }
+        }
+    }
+
+    private static int side(int player) {
+        return player == PawntasticGame.PLAYER1 ? 0 : 1;
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// OpeningBook class with the best moves of the first plies, searched deeply ahead of time (see OpeningBookBuilder)
+// Every game starts from the same position, so the first moves of every game are the same few positions and
+// the agents can look their moves up instead of spending their longest searches on the widest trees
+// An entry is the Zobrist key of a position with the side to move, the best move, its score and the depth it
+// was searched to. A position and its mirror image share one entry, under the canonical key, with the move
+// of the canonical orientation (see PawntasticGame.getCanonicalKey). The file is a header and the entries
+// sorted by key, which are read into arrays and looked up by binary search
+public class OpeningBook {
+    static final int MAGIC = 0x50424B32; // "PBK2", keys of PBK1 books were not canonical
+    static final int HEADER_BYTES = 16; // magic, board size, entries, reserved
+    static final int ENTRY_BYTES = 18; // key, move, score, depth
+    private static final OpeningBook NONE = new OpeningBook(0, new long[0], new int[0], new int[0], new short[0]);
+    private static final AtomicReferenceArray<OpeningBook> REGISTRY =
+            new AtomicReferenceArray<>(Bitboards.MAX_SIZE + 1);
+
+    public final int boardSize;
+    private final long[] keys; // sorted
+    private final int[] moves; // packed, see Move
+    private final int[] scores; // on the scale of AlphaBetaSearch, for the side to move
+    private final short[] depths; // AlphaBetaSearch.EXACT_DEPTH if the search was not cut off at a horizon
+
+    /**
+     * Constructor for a book
+     * @param boardSize the board size
+     * @param keys the position keys, sorted
+     * @param moves the best move of each position
+     * @param scores the score of each position
+     * @param depths the search depth of each position
+     */
+    OpeningBook(int boardSize, long[] keys, int[] moves, int[] scores, short[] depths) {
+        this.boardSize = boardSize;
+        this.keys = keys;
+        this.moves = moves;
+        this.scores = scores;
+        this.depths = depths;
+    }
+
+    /**
+     * Read a book file written by OpeningBookBuilder
+     * @param file the file
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("Not an opening book file: " + file);
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not an opening book file: " + file);
+            int size = buffer.getInt();
+            int count = buffer.getInt();
+            buffer.getInt();
+            if (size < Bitboards.MIN_SIZE || size > Bitboards.MAX_SIZE)
+                throw new IOException("Invalid board size " + size + " in " + file);
+            if (count < 0 || buffer.remaining() < (long) count * ENTRY_BYTES)
+                throw new IOException("Truncated opening book file: " + file);
+
+            long[] keys = new long[count];
+            int[] moves = new int[count];
+            int[] scores = new int[count];
+            short[] depths = new short[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = buffer.getLong();
+                moves[i] = buffer.getInt();
+                scores[i] = buffer.getInt();
+                depths[i] = buffer.getShort();
+                if (i > 0 && keys[i] <= keys[i - 1])
+                    throw new IOException("Opening book entries out of order in " + file);
+            }
+            return new OpeningBook(size, keys, moves, scores, depths);
+        }
+    }
+
+    /**
+     * Write the book
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + keys.length * ENTRY_BYTES);
+        buffer.putInt(MAGIC).putInt(boardSize).putInt(keys.length).putInt(0);
+        for (int i = 0; i < keys.length; i++) {
+            buffer.putLong(keys[i]).putInt(moves[i]).putInt(scores[i]).putShort(depths[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Get the book of a board size, loading the file book-<size>.bin from the working directory on
+     * first use unless one was registered
+     * @param size the board size
+     * @return the book, null if there is none for the size
+     */
+    public static OpeningBook forSize(int size) {
+        if (size < 0 || size > Bitboards.MAX_SIZE)
+            return null;
+        OpeningBook book = REGISTRY.get(size);
+        if (book == null) {
+            book = NONE;
+            Path file = Paths.get(defaultFileName(size));
+            if (Files.isReadable(file)) {
+                try {
+                    book = open(file);
+                } catch (IOException e) {
+                    System.err.println("Ignoring opening book " + file + ": " + e.getMessage());
+                }
+            }
+            if (!REGISTRY.compareAndSet(size, null, book))
+                book = REGISTRY.get(size);
+        }
+        return book == NONE ? null : book;
+    }
+
+    /**
+     * Use a book for its board size from now on
+     * @param book the book, replaces the one loaded for the size before
+     */
+    public static void register(OpeningBook book) {
+        REGISTRY.set(book.boardSize, book);
+    }
+
+    /**
+     * Get the name of the file forSize looks for
+     * @param size the board size
+     * @return the file name
+     */
+    public static String defaultFileName(int size) {
+        return "book-" + size + ".bin";
+    }
+
+    /**
+     * Get the number of positions in the book
+     * @return the entries
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Find a position
+     * @param key the canonical key of the position XOR Zobrist.side of the side to move
+     * @return the entry of the position, -1 if it is not in the book
+     */
+    public int find(long key) {
+        int index = Arrays.binarySearch(keys, key);
+        return index >= 0 ? index : -1;
+    }
+
+    // the fields of an entry, by its index (0 to size - 1, in key order)
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    public int getDepth(int index) {
+        return depths[index];
+    }
+
+    /**
+     * Look up the book move of a position in the book of its board size
+     * @param game the game configuration
+     * @param player the player to move
+     * @param minDepth the least search depth of an entry worth playing (AlphaBetaSearch.EXACT_DEPTH for a solved one)
+     * @return the book move (packed, see Move), 0 if the position is not in the book, was searched
+     *         less deeply, or the move is not legal (a key collision)
+     */
+    public static int bookMove(PawntasticGame game, int player, int minDepth) {
+        OpeningBook book = forSize(game.boardSize);
+        if (book == null)
+            return 0;
+        int index = book.find(game.getCanonicalKey() ^ Zobrist.side(player));
+        if (index < 0 || book.depths[index] < minDepth)
+            return 0;
+        int move = game.canonicalMove(book.moves[index]);
+        int[] legal = new int[Move.MAX_MOVES];
+        int count = game.generateMoves(player, legal);
+        for (int i = 0; i < count; i++) {
+            if (legal[i] == move)
+                return legal[i];
+        }
+        return 0;
+    }
+}
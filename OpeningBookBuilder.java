@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// OpeningBookBuilder class that searches the first plies of a board size deeply and writes an OpeningBook
+// The book is grown for each side in turn, ply by ply from the starting position: where the side is to move
+// the position is searched and only its best move is followed, where the other side is to move every move is
+// followed, so the book answers whatever the opponent plays without searching the side's own unplayed moves
+// The positions of a ply are searched in parallel, one AlphaBetaSearch per thread on the shared table
+// Several runs can be merged: when two runs have the same position the deeper search wins, and a position
+// already in the book at the requested depth is not searched again, so a run can extend an earlier book
+// Positions are keyed canonically, so a line and its mirror image are searched and stored once
+public class OpeningBookBuilder {
+    public final int boardSize;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Entry class with the result of one position's search
+     */
+    private static class Entry {
+        final int move;
+        final int score;
+        final int depth;
+
+        Entry(int move, int score, int depth) {
+            this.move = move;
+            this.score = score;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Node class with a position still to be added to the book
+     */
+    private static class Node {
+        final PawntasticGame game;
+        final int player; // to move
+        final int bookSide; // the side the book is grown for along this line
+
+        Node(PawntasticGame game, int player, int bookSide) {
+            this.game = game;
+            this.player = player;
+            this.bookSide = bookSide;
+        }
+    }
+
+    /**
+     * Constructor for the builder
+     * @param boardSize the board size
+     */
+    public OpeningBookBuilder(int boardSize) {
+        if (boardSize < Bitboards.MIN_SIZE || boardSize > Bitboards.MAX_SIZE)
+            throw new IllegalArgumentException("Invalid board size: " + boardSize);
+        this.boardSize = boardSize;
+    }
+
+    /**
+     * Add a position, keeping the deeper search if it is in the book already
+     * @param key the canonical key of the position XOR Zobrist.side of the side to move
+     * @param move the best move of the canonical orientation (packed, see Move)
+     * @param score the score for the side to move
+     * @param depth the search depth
+     */
+    public void add(long key, int move, int score, int depth) {
+        entries.merge(key, new Entry(move, score, depth), (old, added) -> added.depth > old.depth ? added : old);
+    }
+
+    /**
+     * Add every position of a book
+     * @param book the book, of this builder's board size
+     */
+    public void merge(OpeningBook book) {
+        if (book.boardSize != boardSize)
+            throw new IllegalArgumentException("Cannot merge a " + book.boardSize + "x" + book.boardSize
+                    + " book into a " + boardSize + "x" + boardSize + " one");
+        for (int i = 0; i < book.size(); i++) {
+            add(book.getKey(i), book.getMove(i), book.getScore(i), book.getDepth(i));
+        }
+    }
+
+    /**
+     * Search the first plies from the starting position, WHITE to move as in gamePlay
+     * @param plies the plies to cover
+     * @param depth the depth of every search
+     * @param threads the number of threads to search on
+     * @return the number of positions searched (the ones already in the book deeply enough are not)
+     */
+    public int build(int plies, int depth, int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        int searched = 0;
+        try {
+            List<Node> level = new ArrayList<>();
+            PawntasticGame start = new PawntasticGame(boardSize);
+            level.add(new Node(start, PawntasticGame.PLAYER2, PawntasticGame.PLAYER2));
+            level.add(new Node(start.cloneGame(), PawntasticGame.PLAYER2, PawntasticGame.PLAYER1));
+            for (int ply = 0; ply < plies && !level.isEmpty(); ply++) {
+                // search the positions of the ply where the book side is to move, each one once
+                List<Future<?>> searches = new ArrayList<>();
+                Set<Long> queued = new HashSet<>();
+                for (Node node : level) {
+                    long key = node.game.getCanonicalKey() ^ Zobrist.side(node.player);
+                    Entry known = entries.get(key);
+                    if (node.player != node.bookSide || (known != null && known.depth >= depth) || !queued.add(key))
+                        continue;
+                    searches.add(pool.submit(() -> search(node.game, node.player, depth)));
+                }
+                for (Future<?> search : searches) {
+                    search.get();
+                }
+                searched += searches.size();
+                level = expand(level);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Opening book build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Opening book search failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return searched;
+    }
+
+    /**
+     * Search one position and add it to the book
+     * @param game the game configuration, left as it was
+     * @param player the player to move
+     * @param depth the search depth
+     */
+    private void search(PawntasticGame game, int player, int depth) {
+        int[] moves = new int[Move.MAX_MOVES];
+        if (game.isTerminalState(player, game.generateMoves(player, moves)))
+            return;
+        SearchContext ctx = new SearchContext(0);
+        int best = AlphaBetaSearch.iterativeDeepening(game, player, 1, depth, ctx);
+        // nothing cut off at the horizon means the score is exact
+        add(game.getCanonicalKey() ^ Zobrist.side(player), game.canonicalMove(best), ctx.bestScore,
+                ctx.reachedHorizon ? depth : AlphaBetaSearch.EXACT_DEPTH);
+    }
+
+    /**
+     * Get the positions of the next ply: the book move where the book side is to move, every move elsewhere
+     * @param level the positions of this ply
+     * @return the positions after them, each once per book side
+     */
+    private List<Node> expand(List<Node> level) {
+        List<Node> next = new ArrayList<>();
+        List<Set<Long>> seen = Arrays.asList(new HashSet<>(), new HashSet<>()); // by book side
+        int[] moves = new int[Move.MAX_MOVES];
+        for (Node node : level) {
+            PawntasticGame game = node.game;
+            int count = game.generateMoves(node.player, moves);
+            if (game.isTerminalState(node.player, count))
+                continue;
+            if (node.player == node.bookSide) {
+                Entry entry = entries.get(game.getCanonicalKey() ^ Zobrist.side(node.player));
+                if (entry == null)
+                    continue;
+                moves[0] = game.canonicalMove(entry.move);
+                count = 1;
+            }
+            Set<Long> seenBySide = seen.get(node.bookSide == PawntasticGame.PLAYER2 ? 0 : 1);
+            for (int i = 0; i < count; i++) {
+                PawntasticGame child = game.cloneGame();
+                child.makeMove(moves[i]);
+                if (seenBySide.add(child.getCanonicalKey()))
+                    next.add(new Node(child, -node.player, node.bookSide));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Get the book built so far
+     * @return the book, with its entries sorted by key
+     */
+    public OpeningBook toBook() {
+        Long[] sorted = entries.keySet().toArray(new Long[0]);
+        Arrays.sort(sorted);
+        long[] keys = new long[sorted.length];
+        int[] moves = new int[sorted.length];
+        int[] scores = new int[sorted.length];
+        short[] depths = new short[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Entry entry = entries.get(sorted[i]);
+            keys[i] = sorted[i];
+            moves[i] = entry.move;
+            scores[i] = entry.score;
+            depths[i] = (short) entry.depth;
+        }
+        return new OpeningBook(boardSize, keys, moves, scores, depths);
+    }
+
+    /**
+     * Build an opening book file, extending the file if it exists
+     * Usage: java OpeningBookBuilder boardSize plies depth [file] [threads] [bookToMerge...]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java OpeningBookBuilder boardSize plies depth [file] [threads] [bookToMerge...]");
+            return;
+        }
+        int size = Integer.parseInt(args[0]);
+        int plies = Integer.parseInt(args[1]);
+        int depth = Integer.parseInt(args[2]);
+        Path file = Paths.get(args.length > 3 ? args[3] : OpeningBook.defaultFileName(size));
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        OpeningBookBuilder builder = new OpeningBookBuilder(size);
+        if (Files.exists(file))
+            builder.merge(OpeningBook.open(file));
+        for (int i = 5; i < args.length; i++) {
+            builder.merge(OpeningBook.open(Paths.get(args[i])));
+        }
+        int searched = plies > 0 ? builder.build(plies, depth, threads) : 0;
+        OpeningBook book = builder.toBook();
+        book.write(file);
+        System.out.printf("Searched %d positions of %dx%d to depth %d on %d threads in %.1f s, wrote %d entries to %s%n",
+                searched, size, size, depth, threads, (System.nanoTime() - start) / 1e9, book.size(), file);
+    }
+}
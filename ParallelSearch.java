@@ -0,0 +1,133 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// ParallelSearch class that runs the alpha-beta search on several threads (Lazy SMP)
+// Every thread runs its own iterative deepening on its own copy of the game and the threads only
+// share the lock-free transposition table, so the helpers keep filling it with results the main
+// thread then cuts off on. The move is always the main thread's, so it is as good as a serial search
+public class ParallelSearch {
+    /**
+     * Result class with the move and what it took to find it
+     */
+    public static class Result {
+        public final Action move;
+        public final int score; // of the main thread's deepest finished iteration (AlphaBetaSearch's scale)
+        public final int depth; // of that iteration, 0 if none finished
+        public final int[] principalVariation; // of that iteration, packed moves
+        public final long nodes; // nodes visited by all threads together
+        public final long elapsedNanos;
+        public final int threads;
+        public final SearchMetrics metrics; // the counters of all threads together
+
+        public Result(Action move, int score, int depth, int[] principalVariation, long nodes, long elapsedNanos,
+                int threads, SearchMetrics metrics) {
+            this.move = move;
+            this.score = score;
+            this.depth = depth;
+            this.principalVariation = principalVariation;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.threads = threads;
+            this.metrics = metrics;
+        }
+
+        public double nodesPerSecond() {
+            return nodes * 1e9 / Math.max(1L, elapsedNanos);
+        }
+    }
+
+    /**
+     * search method that deepens on several threads until maxDepth or the time budget
+     * @param game the game configuration
+     * @param player the current player
+     * @param maxDepth the deepest iteration (SearchContext.MAX_DEPTH to solve the game exactly)
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     * @param threads the number of threads, the calling thread included
+     * @return the main thread's move, with the nodes and time of all threads
+     */
+    public static Result search(PawntasticGame game, int player, int maxDepth, long timeMillis, int threads) {
+        return search(game, player, maxDepth, timeMillis, 0, threads);
+    }
+
+    /**
+     * search method that deepens on several threads until maxDepth, the time budget or the node cap
+     * @param game the game configuration
+     * @param player the current player
+     * @param maxDepth the deepest iteration (SearchContext.MAX_DEPTH to solve the game exactly)
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     * @param nodes the most nodes of all threads together (each thread gets its share), 0 for no cap
+     * @param threads the number of threads, the calling thread included
+     * @return the main thread's move, with the nodes and time of all threads
+     */
+    public static Result search(PawntasticGame game, int player, int maxDepth, long timeMillis, long nodes,
+            int threads) {
+        long start = System.nanoTime();
+        long nodeLimit = new SearchLimits(0, nodes, 0, threads).nodesPerThread();
+        AtomicBoolean abort = new AtomicBoolean();
+        SearchContext[] contexts = new SearchContext[Math.max(1, threads)];
+        Thread[] helpers = new Thread[contexts.length - 1];
+        for (int i = 1; i < contexts.length; i++) {
+            PawntasticGame copy = game.cloneGame();
+            SearchContext ctx = new SearchContext(timeMillis, abort);
+            ctx.nodeLimit = nodeLimit;
+            int startDepth = 1 + (i & 1); // every other helper runs one ply ahead of the main thread
+            contexts[i] = ctx;
+            helpers[i - 1] = new Thread(
+                    () -> AlphaBetaSearch.iterativeDeepening(copy, player, startDepth, maxDepth, ctx),
+                    "lazy-smp-" + i);
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
+        }
+
+        contexts[0] = new SearchContext(timeMillis, abort);
+        contexts[0].nodeLimit = nodeLimit;
+        int move = AlphaBetaSearch.iterativeDeepening(game, player, 1, maxDepth, contexts[0]);
+        abort.set(true);
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long total = 0;
+        for (SearchContext ctx : contexts) {
+            total += ctx.nodes;
+        }
+        SearchContext main = contexts[0];
+        long elapsed = System.nanoTime() - start;
+        SearchMetrics metrics = SearchMetrics.of(elapsed, contexts);
+        if (move == 0) {
+            // not even depth 1 finished in time
+            game.generateMoves(player, main.moves[0]);
+            move = main.moves[0][0];
+            return new Result(game.toAction(move), 0, 0, new int[] {move}, total, elapsed, contexts.length, metrics);
+        }
+        return new Result(game.toAction(move), main.bestScore, main.completedDepth, main.getPrincipalVariation(),
+                total, elapsed, contexts.length, metrics);
+    }
+
+    /**
+     * Report the speedup and nodes per second from the starting position
+     * Usage: java ParallelSearch [boardSize] [depth] [threads]
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        PawntasticGame game = new PawntasticGame(size);
+
+        System.out.println("Board " + size + "x" + size + ", depth " + depth);
+        Result serial = null;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            TranspositionTable.shared().clear();
+            Result result = search(game, PawntasticGame.PLAYER2, depth, 0, threads);
+            if (serial == null) {
+                serial = result;
+            }
+            System.out.printf("%2d threads: %8.1f ms, %12.0f nodes/s, speedup %.2f%n", threads,
+                    result.elapsedNanos / 1e6, result.nodesPerSecond(),
+                    (double) serial.elapsedNanos / result.elapsedNanos);
+        }
+    }
+}
@@ -1,26 +1,73 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.SplittableRandom;
 
 public class PawntasticGame {
     public static final int PLAYER1 = 1; // black pawn
     public static final int PLAYER2 = -1; // white pawn
+    public static final int DOUBLE_PUSH_MIN_SIZE = 6; // pawns on their starting row move 2 squares on boards this big
     public int boardSize; // the size of the board
-    public int[][] board; // the chess board 
     public int agent; // the bot agent
     public int cutOffDepth; // the cut off depth that player enter
+    public long moveTimeMillis; // the time budget per move that player enter, 0 to search to cutOffDepth (or Mcts' default)
+    public int searchThreads = 1; // the threads the alpha-beta and Monte Carlo agents search on
+    public boolean quiescence = true; // the alpha-beta agents search captures and promotion threats past cutOffDepth
+    public boolean hMinimaxQuiescence; // H_Minimax does as well, off so it stays the plain H-minimax by default
     public String userColor; // the side that player choose (Black pawns or White pawns)
+    public long nodesSearched; // nodes (playouts for Mcts) the agents searched for their moves in this game
+    public Evaluation evaluation; // the tuned heuristic of the board size, null for the hand-written one
+    Mcts.Node mctsTree; // the root of Mcts' last search in this game, kept for its next move (not copied by cloneGame)
+
+    // the chess board as bitboards, one two-word set per side (see Bitboards)
+    private long blackLo, blackHi; // PLAYER1 pawns
+    private long whiteLo, whiteHi; // PLAYER2 pawns
+    private long hashKey; // Zobrist key of the pawns
+    private long mirrorKey; // Zobrist key of the pawns' mirror image, left and right swapped
+    private int advance1; // PLAYER1's advancement for eval, the sum of (row-1)^3 over its pawns
+    private int advance2; // PLAYER2's advancement for eval, the sum of (boardSize-row-2)^3 over its pawns
+    private int promoted1; // PLAYER1 pawns on the last row
+    private int promoted2; // PLAYER2 pawns on the first row
+    private final long[] targets = new long[8]; // to cells of each kind of move, lo/hi, see fillTargets
+    private int targetsPlayer; // the player targets was worked out for
+    private final double[] features = new double[Evaluation.FEATURES]; // the terms of evaluation, see eval
+
+    // kinds of moves in targets
+    private static final int PUSH = 0;
+    private static final int DOUBLE = 1;
+    private static final int CAPTURE_LEFT = 2;
+    private static final int CAPTURE_RIGHT = 3;
+
+    // eval's advancement term of a single pawn, per board size and cell
+    private static final int[][] ADVANCE1 = new int[Bitboards.MAX_SIZE + 1][];
+    private static final int[][] ADVANCE2 = new int[Bitboards.MAX_SIZE + 1][];
+
+    static {
+        for (int size = Bitboards.MIN_SIZE; size <= Bitboards.MAX_SIZE; size++) {
+            ADVANCE1[size] = new int[size * size];
+            ADVANCE2[size] = new int[size * size];
+            for (int square = 0; square < size * size; square++) {
+                int row = square / size;
+                ADVANCE1[size][square] = (row - 1) * (row - 1) * (row - 1);
+                ADVANCE2[size][square] = (size - row - 2) * (size - row - 2) * (size - row - 2);
+            }
+        }
+    }
 
     // constructor for the game board and set the pawns to their initial cell
     public PawntasticGame(int size) {
+        if (size < Bitboards.MIN_SIZE || size > Bitboards.MAX_SIZE)
+            throw new IllegalArgumentException("Invalid board size: " + size);
         boardSize = size;
-        board = new int[boardSize][boardSize];
+        hashKey = Zobrist.size(size);
+        mirrorKey = hashKey;
+        evaluation = Evaluation.forSize(size);
 
         for (int col = 0; col < boardSize; col++) {
-            board[1][col] = PLAYER1;
+            setPiece(1, col, PLAYER1);
         }
         for (int col = 0; col < boardSize; col++) {
-            board[boardSize - 2][col] = PLAYER2;
+            setPiece(boardSize - 2, col, PLAYER2);
         }
     }
 
@@ -30,12 +77,159 @@ public class PawntasticGame {
      */
     public PawntasticGame cloneGame() {
         PawntasticGame newGame = new PawntasticGame(boardSize);
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                newGame.board[i][j] = board[i][j];
+        newGame.blackLo = blackLo;
+        newGame.blackHi = blackHi;
+        newGame.whiteLo = whiteLo;
+        newGame.whiteHi = whiteHi;
+        newGame.hashKey = hashKey;
+        newGame.mirrorKey = mirrorKey;
+        newGame.evaluation = evaluation;
+        newGame.advance1 = advance1;
+        newGame.advance2 = advance2;
+        newGame.promoted1 = promoted1;
+        newGame.promoted2 = promoted2;
+        newGame.quiescence = quiescence;
+        newGame.hMinimaxQuiescence = hMinimaxQuiescence;
+        return newGame;
+    }
+
+    /**
+     * Get the pawn on a cell
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return PLAYER1, PLAYER2 or 0 if the cell is empty
+     */
+    public int getPiece(int row, int col) {
+        return pieceAt(row * boardSize + col);
+    }
+
+    /**
+     * Put a pawn on a cell (or empty it)
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param piece PLAYER1, PLAYER2 or 0 to empty the cell
+     */
+    public void setPiece(int row, int col, int piece) {
+        int square = row * boardSize + col;
+        int old = pieceAt(square);
+        if (old != 0)
+            flip(old, square);
+        if (piece != 0)
+            flip(piece, square);
+    }
+
+    /**
+     * Get the Zobrist key of the position
+     * @return the key of the pawns on the board (XOR Zobrist.side for the side to move)
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Get the key shared by the position and its mirror image, for tables that fold the two together
+     * Moves stored under it belong to the canonical orientation, see canonicalMove
+     * @return the smaller of the keys of the position and of its mirror image (XOR Zobrist.side for the side to move)
+     */
+    public long getCanonicalKey() {
+        return Math.min(hashKey, mirrorKey);
+    }
+
+    /**
+     * Check whether the position is its own mirror image
+     * @return true if mirroring the board left to right gives the same pawns
+     */
+    public boolean isSymmetric() {
+        return hashKey == mirrorKey;
+    }
+
+    /**
+     * Map a move between the position and its canonical orientation (the one getCanonicalKey is the key of),
+     * both ways since mirroring twice gives the move back
+     * @param move the packed move, 0 for none
+     * @return the move mirrored if the canonical orientation is the mirror image, else the move itself
+     */
+    public int canonicalMove(int move) {
+        return mirrorKey < hashKey ? Move.mirror(move, boardSize) : move;
+    }
+
+    /**
+     * Drop the moves of a symmetric position that are the mirror image of a move earlier in the list,
+     * as they lead to mirror images of the same positions
+     * @param moves the moves, the kept ones stay in their order at the front
+     * @param count the number of moves
+     * @return the number of moves kept, count if the position is not symmetric
+     */
+    public int removeMirrorMoves(int[] moves, int count) {
+        if (!isSymmetric())
+            return count;
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int image = Move.mirror(moves[i], boardSize);
+            boolean seen = false;
+            for (int j = 0; j < kept && !seen; j++) {
+                seen = moves[j] == image;
             }
+            if (!seen)
+                moves[kept++] = moves[i];
         }
-        return newGame;
+        return kept;
+    }
+
+    /**
+     * Get the pawns of a player on cells 0 to 63 as a bitboard
+     * @param player the player
+     * @return bit i set if the player has a pawn on cell i (row * boardSize + col)
+     */
+    public long getPawnsLo(int player) {
+        return player == PLAYER1 ? blackLo : whiteLo;
+    }
+
+    /**
+     * Get the pawns of a player on cells 64 and up as a bitboard
+     * @param player the player
+     * @return bit i set if the player has a pawn on cell 64 + i
+     */
+    public long getPawnsHi(int player) {
+        return player == PLAYER1 ? blackHi : whiteHi;
+    }
+
+    /**
+     * Get a player's advancement, the term of the hand-written eval
+     * @param player the player
+     * @return the sum over the player's pawns of the cube of the rows they advanced
+     */
+    public int getAdvancement(int player) {
+        return player == PLAYER1 ? advance1 : advance2;
+    }
+
+    /**
+     * Encode an action as a packed int move (see Move)
+     * @param action the action to encode
+     * @return the packed move, with its flags worked out from the action's rows and columns
+     */
+    public int encodeMove(Action action) {
+        int from = action.getFromRow() * boardSize + action.getFromCol();
+        int to = action.getToRow() * boardSize + action.getToCol();
+        int flags = 0;
+        if (action.getFromCol() != action.getToCol())
+            flags |= Move.CAPTURE;
+        if (action.getToRow() == 0 || action.getToRow() == boardSize - 1)
+            flags |= Move.PROMOTION;
+        if (Math.abs(action.getToRow() - action.getFromRow()) == 2)
+            flags |= Move.DOUBLE_PUSH;
+        return Move.of(from, to, flags);
+    }
+
+    /**
+     * Decode a packed int move into an action
+     * @param move the packed move
+     * @return the action
+     */
+    public Action toAction(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        return new Action(from / boardSize, from % boardSize, to / boardSize, to % boardSize, Move.isPromotion(move));
     }
 
     /**
@@ -54,26 +248,26 @@ public class PawntasticGame {
             return false;
 
         // check if the starting position contains player's pawn
-        if (board[fromRow][fromCol] != player)
+        if (getPiece(fromRow, fromCol) != player)
             return false;
 
         // check if it's a valid pawn move (one square forward)
         if (player == PLAYER1) {
-            if (fromRow + 1 == toRow && fromCol == toCol && board[toRow][toCol] == 0) { // nothing above and nothing
-                                                                                        // block the pawn
+            if (fromRow + 1 == toRow && fromCol == toCol && getPiece(toRow, toCol) == 0) { // nothing above and nothing
+                                                                                         // block the pawn
                 return true;
             }
-            if (fromRow + 2 == toRow && fromCol == toCol && board[toRow][toCol] == 0 &&
-                    board[fromRow + 1][fromCol] == 0 && fromRow == 1) { // pawn can move 2 squares from starting point
+            if (fromRow + 2 == toRow && fromCol == toCol && getPiece(toRow, toCol) == 0 &&
+                    getPiece(fromRow + 1, fromCol) == 0 && fromRow == 1 && boardSize >= DOUBLE_PUSH_MIN_SIZE) { // pawn can move 2 squares from starting point
                 return true;
             }
         } else if (player == PLAYER2) {
-            if (fromRow - 1 == toRow && fromCol == toCol && board[toRow][toCol] == 0) { // nothing below and nothing
-                                                                                        // block the pawn
+            if (fromRow - 1 == toRow && fromCol == toCol && getPiece(toRow, toCol) == 0) { // nothing below and nothing
+                                                                                         // block the pawn
                 return true;
             }
-            if (fromRow - 2 == toRow && fromCol == toCol && board[toRow][toCol] == 0 &&
-                    board[fromRow - 1][fromCol] == 0 && fromRow == -1) { // pawn can move 2 squares from starting point
+            if (fromRow - 2 == toRow && fromCol == toCol && getPiece(toRow, toCol) == 0 &&
+                    getPiece(fromRow - 1, fromCol) == 0 && fromRow == boardSize - 2 && boardSize >= DOUBLE_PUSH_MIN_SIZE) { // pawn can move 2 squares from starting point
                 return true;
             }
         }
@@ -81,12 +275,12 @@ public class PawntasticGame {
         // check if it's a valid pawn capture
         if (Math.abs(fromCol - toCol) == 1) {
             if (player == PLAYER1) {
-                if (fromRow + 1 == toRow && board[toRow][toCol] == PLAYER2) {
+                if (fromRow + 1 == toRow && getPiece(toRow, toCol) == PLAYER2) {
                     return true;
                 }
             }
             if (player == PLAYER2) {
-                if (fromRow - 1 == toRow && board[toRow][toCol] == PLAYER1) {
+                if (fromRow - 1 == toRow && getPiece(toRow, toCol) == PLAYER1) {
                     return true;
                 }
             }
@@ -101,59 +295,315 @@ public class PawntasticGame {
      * @return the list of legal moves for a player
      */
     public List<Action> getAllLegalMoves(int player) {
-        List<Action> legalMoves = new ArrayList<>();
-        int opponent = -player;
-        int direction = (player == PLAYER1) ? 1 : -1;
-
-        for (int row = 0; row < boardSize; row++) {
-            for (int col = 0; col < boardSize; col++) {
-                if (board[row][col] == player) {
-                    int newRow = row + direction;
-
-                    // case when the pawn can MOVE UPward/DOWNward(no opponent's pawn block)
-                    if (isValidPosition(newRow, col) && board[newRow][col] == 0) {
-                        // promotion
-                        if (newRow == 0 || newRow == boardSize - 1) {
-                            legalMoves.add(new Action(row, col, newRow, col, true));
-                        } else
-                            legalMoves.add(new Action(row, col, newRow, col));
-                    }
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = generateMoves(player, moves);
+        List<Action> legalMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            legalMoves.add(toAction(moves[i]));
+        }
+        return legalMoves;
+    }
 
-                    // case when the pawn can move 2 squares
-                    if (boardSize >= 6) {
-                        if (row == (player == PLAYER1 ? 1 : boardSize - 2) && isValidPosition(newRow + direction, col)
-                                &&
-                                board[newRow][col] == 0 && board[newRow + direction][col] == 0) {
-                            legalMoves.add(new Action(row, col, newRow + direction, col));
-                        }
-                    }
+    /**
+     * Generate all the legal moves of a player as packed int moves, in row/column scan order
+     * 
+     * @param player the current player
+     * @param moves the buffer to fill, at least Move.MAX_MOVES long
+     * @return the number of moves written to the buffer
+     */
+    public int generateMoves(int player, int[] moves) {
+        fillTargets(player);
+        int count = 0;
+        int n = boardSize;
+        int forward = (player == PLAYER1) ? n : -n; // one row UPward/DOWNward in cells
+        long ownLo = (player == PLAYER1) ? blackLo : whiteLo;
+        long ownHi = (player == PLAYER1) ? blackHi : whiteHi;
+        long pushLo = targets[2 * PUSH];
+        long pushHi = targets[2 * PUSH + 1];
+        long doubleLo = targets[2 * DOUBLE];
+        long doubleHi = targets[2 * DOUBLE + 1];
+        long captureLeftLo = targets[2 * CAPTURE_LEFT];
+        long captureLeftHi = targets[2 * CAPTURE_LEFT + 1];
+        long captureRightLo = targets[2 * CAPTURE_RIGHT];
+        long captureRightHi = targets[2 * CAPTURE_RIGHT + 1];
 
-                    // case when pawn can CAPTURE opponent's pawn
-                    int[] captureCols = { col - 1, col + 1 };
-                    for (int captureCol : captureCols) {
-                        if (isValidPosition(newRow, captureCol) && board[newRow][captureCol] == opponent) {
-                            legalMoves.add(new Action(row, col, newRow, captureCol));
-                        }
-                    }
+        // walk the pawns in row/column order so the moves keep the order of a board scan
+        for (int word = 0; word < 2; word++) {
+            for (long pawns = (word == 0) ? ownLo : ownHi; pawns != 0; pawns &= pawns - 1) {
+                int from = word * 64 + Long.numberOfTrailingZeros(pawns);
+                int to = from + forward;
+                int newRow = to / n;
+                // promotion
+                int promotion = (newRow == 0 || newRow == n - 1) ? Move.PROMOTION : 0;
+
+                if (Bitboards.test(pushLo, pushHi, to)) {
+                    moves[count++] = Move.of(from, to, promotion);
                 }
+                if (Bitboards.test(doubleLo, doubleHi, to + forward)) {
+                    moves[count++] = Move.of(from, to + forward, Move.DOUBLE_PUSH);
+                }
+                if (Bitboards.test(captureLeftLo, captureLeftHi, to - 1)) {
+                    moves[count++] = Move.of(from, to - 1, Move.CAPTURE | promotion);
+                }
+                if (Bitboards.test(captureRightLo, captureRightHi, to + 1)) {
+                    moves[count++] = Move.of(from, to + 1, Move.CAPTURE | promotion);
+                }
+            }
+        }
+
+        return count;
+    }
 
+    /**
+     * Count the legal moves of a player without generating them
+     * @param player the current player
+     * @return the number of moves generateMoves would find
+     */
+    public int countMoves(int player) {
+        fillTargets(player);
+        int count = 0;
+        for (long set : targets) {
+            count += Long.bitCount(set);
+        }
+        return count;
+    }
+
+    /**
+     * Get one legal move of a player by its number, without generating the others
+     * The moves are numbered pushes first, then double pushes, then captures toward the previous
+     * column, then toward the next one, each kind by its to cell (not the order of generateMoves)
+     * @param player the current player
+     * @param index the number of the move, between 0 and countMoves(player) - 1
+     * @return the packed move
+     */
+    public int getMove(int player, int index) {
+        fillTargets(player);
+        return targetAt(index);
+    }
+
+    /**
+     * Pick a random legal move of a player from a single pass over its move sets, as a random playout
+     * does: the same move as getMove with a random number, or getPromotionMove first if asked to
+     * @param player the current player
+     * @param random the random numbers
+     * @param takePromotions true to play a move that wins on the spot whenever there is one
+     * @return the packed move, 0 if the game is over with player to move (see isTerminalState)
+     */
+    public int randomMove(int player, SplittableRandom random, boolean takePromotions) {
+        if (getWinner() != 0 || !hasAnyLegalMove(-player))
+            return 0;
+        fillTargets(player);
+        int count = 0;
+        for (long set : targets) {
+            count += Long.bitCount(set);
+        }
+        if (count == 0)
+            return 0;
+        int move = takePromotions ? promotionTarget() : 0;
+        return move != 0 ? move : targetAt(random.nextInt(count));
+    }
+
+    // the index-th move of the sets fillTargets last worked out, numbered as getMove says
+    private int targetAt(int index) {
+        for (int kind = 0; kind < 4; kind++) {
+            long lo = targets[2 * kind];
+            long hi = targets[2 * kind + 1];
+            int inKind = Long.bitCount(lo) + Long.bitCount(hi);
+            if (index >= inKind) {
+                index -= inKind;
+                continue;
+            }
+            // the index-th set cell of the kind
+            int to;
+            if (index < Long.bitCount(lo)) {
+                for (int i = 0; i < index; i++)
+                    lo &= lo - 1;
+                to = Long.numberOfTrailingZeros(lo);
+            } else {
+                for (int i = Long.bitCount(lo); i < index; i++)
+                    hi &= hi - 1;
+                to = 64 + Long.numberOfTrailingZeros(hi);
             }
+            return targetMove(kind, to);
         }
+        throw new IllegalArgumentException("No move " + index + " for player " + targetsPlayer);
+    }
 
-        return legalMoves;
+    /**
+     * Find a move that wins on the spot, without generating the others
+     * @param player the current player
+     * @return a packed move that reaches the last row, 0 if there is none
+     */
+    public int getPromotionMove(int player) {
+        fillTargets(player);
+        return promotionTarget();
+    }
+
+    // a move of the sets fillTargets last worked out that reaches the last row, 0 if there is none
+    private int promotionTarget() {
+        int n = boardSize;
+        int lastRow = (targetsPlayer == PLAYER1) ? n - 1 : 0;
+        for (int kind = 0; kind < 4; kind++) {
+            long lo = targets[2 * kind] & Bitboards.ROW_LO[n][lastRow];
+            long hi = targets[2 * kind + 1] & Bitboards.ROW_HI[n][lastRow];
+            if (lo != 0)
+                return targetMove(kind, Long.numberOfTrailingZeros(lo));
+            if (hi != 0)
+                return targetMove(kind, 64 + Long.numberOfTrailingZeros(hi));
+        }
+        return 0;
+    }
+
+    // the move of the player fillTargets last ran for that reaches a cell of one of its target sets
+    private int targetMove(int kind, int to) {
+        int n = boardSize;
+        int forward = targetsPlayer == PLAYER1 ? n : -n;
+        int promotion = (to < n || to >= n * (n - 1)) ? Move.PROMOTION : 0;
+        if (kind == PUSH)
+            return Move.of(to - forward, to, promotion);
+        if (kind == DOUBLE)
+            return Move.of(to - 2 * forward, to, Move.DOUBLE_PUSH);
+        if (kind == CAPTURE_LEFT)
+            return Move.of(to - forward + 1, to, Move.CAPTURE | promotion);
+        return Move.of(to - forward - 1, to, Move.CAPTURE | promotion);
+    }
+
+    /**
+     * Work out the to cells of a player's moves into targets, a lo/hi pair per kind of move: the one
+     * place the rules of how pawns move are written, every move generator works from these sets
+     * @param player the current player
+     */
+    private void fillTargets(int player) {
+        int n = boardSize;
+        int forward = (player == PLAYER1) ? n : -n;
+        long ownLo = (player == PLAYER1) ? blackLo : whiteLo;
+        long ownHi = (player == PLAYER1) ? blackHi : whiteHi;
+        long oppLo = (player == PLAYER1) ? whiteLo : blackLo;
+        long oppHi = (player == PLAYER1) ? whiteHi : blackHi;
+        long emptyLo = ~(blackLo | whiteLo) & Bitboards.FULL_LO[n];
+        long emptyHi = ~(blackHi | whiteHi) & Bitboards.FULL_HI[n];
+        targetsPlayer = player;
+
+        long pushLo = Bitboards.shiftLo(ownLo, ownHi, forward) & emptyLo;
+        long pushHi = Bitboards.shiftHi(ownLo, ownHi, forward) & emptyHi;
+        targets[2 * PUSH] = pushLo;
+        targets[2 * PUSH + 1] = pushHi;
+
+        targets[2 * DOUBLE] = 0;
+        targets[2 * DOUBLE + 1] = 0;
+        if (n >= DOUBLE_PUSH_MIN_SIZE) {
+            int startRow = (player == PLAYER1) ? 1 : n - 2;
+            long startLo = ownLo & Bitboards.ROW_LO[n][startRow];
+            long startHi = ownHi & Bitboards.ROW_HI[n][startRow];
+            long stepLo = Bitboards.shiftLo(startLo, startHi, forward) & emptyLo;
+            long stepHi = Bitboards.shiftHi(startLo, startHi, forward) & emptyHi;
+            targets[2 * DOUBLE] = Bitboards.shiftLo(stepLo, stepHi, forward) & emptyLo;
+            targets[2 * DOUBLE + 1] = Bitboards.shiftHi(stepLo, stepHi, forward) & emptyHi;
+        }
+
+        long leftLo = ownLo & Bitboards.NOT_FIRST_COL_LO[n];
+        long leftHi = ownHi & Bitboards.NOT_FIRST_COL_HI[n];
+        targets[2 * CAPTURE_LEFT] = Bitboards.shiftLo(leftLo, leftHi, forward - 1) & oppLo;
+        targets[2 * CAPTURE_LEFT + 1] = Bitboards.shiftHi(leftLo, leftHi, forward - 1) & oppHi;
+        long rightLo = ownLo & Bitboards.NOT_LAST_COL_LO[n];
+        long rightHi = ownHi & Bitboards.NOT_LAST_COL_HI[n];
+        targets[2 * CAPTURE_RIGHT] = Bitboards.shiftLo(rightLo, rightHi, forward + 1) & oppLo;
+        targets[2 * CAPTURE_RIGHT + 1] = Bitboards.shiftHi(rightLo, rightHi, forward + 1) & oppHi;
     }
 
     /**
      * Make moves (apply an action to current state)
      * @param action the action that player want to make
+     * @return the undo info for unmakeMove: the pawn that stood on the target cell (0 if none)
+     */
+    public int makeMoves(Action action) {
+        int fromRow = action.getFromRow();
+        int fromCol = action.getFromCol();
+        int toRow = action.getToRow();
+        int toCol = action.getToCol();
+        int captured = getPiece(toRow, toCol);
+        setPiece(toRow, toCol, getPiece(fromRow, fromCol));
+        setPiece(fromRow, fromCol, 0);
+        return captured;
+    }
+
+    /**
+     * Unmake moves (take back an action made with makeMoves)
+     * @param action the action that was made
+     * @param undo the undo info returned by makeMoves
      */
-    public void makeMoves(Action action) {
+    public void unmakeMove(Action action, int undo) {
         int fromRow = action.getFromRow();
         int fromCol = action.getFromCol();
         int toRow = action.getToRow();
         int toCol = action.getToCol();
-        board[toRow][toCol] = board[fromRow][fromCol];
-        board[fromRow][fromCol] = 0;
+        setPiece(fromRow, fromCol, getPiece(toRow, toCol));
+        setPiece(toRow, toCol, undo);
+    }
+
+    /**
+     * Make a packed int move (the allocation-free twin of makeMoves used by the searchers)
+     * @param move the packed move, as generated by generateMoves
+     * @return the undo info for unmakeMove: the captured pawn (0 if none)
+     */
+    public int makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int mover = pieceAt(from);
+        int captured = Move.isCapture(move) ? -mover : 0;
+        if (captured != 0)
+            flip(captured, to);
+        flip(mover, from);
+        flip(mover, to);
+        return captured;
+    }
+
+    /**
+     * Unmake a packed int move made with makeMove
+     * @param move the packed move
+     * @param undo the undo info returned by makeMove
+     */
+    public void unmakeMove(int move, int undo) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int mover = pieceAt(to);
+        flip(mover, to);
+        flip(mover, from);
+        if (undo != 0)
+            flip(undo, to);
+    }
+
+    // the pawn on a cell by index: PLAYER1, PLAYER2 or 0
+    private int pieceAt(int square) {
+        if (Bitboards.test(blackLo, blackHi, square))
+            return PLAYER1;
+        if (Bitboards.test(whiteLo, whiteHi, square))
+            return PLAYER2;
+        return 0;
+    }
+
+    // put a pawn on an empty cell or take it off again, keeping the hash key, eval terms and promotions in step
+    private void flip(int piece, int square) {
+        long loBit = square < 64 ? 1L << square : 0L;
+        long hiBit = square < 64 ? 0L : 1L << (square - 64);
+        boolean placed;
+        if (piece == PLAYER1) {
+            blackLo ^= loBit;
+            blackHi ^= hiBit;
+            placed = Bitboards.test(blackLo, blackHi, square);
+            advance1 += placed ? ADVANCE1[boardSize][square] : -ADVANCE1[boardSize][square];
+            if (square >= boardSize * (boardSize - 1))
+                promoted1 += placed ? 1 : -1;
+        } else {
+            whiteLo ^= loBit;
+            whiteHi ^= hiBit;
+            placed = Bitboards.test(whiteLo, whiteHi, square);
+            advance2 += placed ? ADVANCE2[boardSize][square] : -ADVANCE2[boardSize][square];
+            if (square < boardSize)
+                promoted2 += placed ? 1 : -1;
+        }
+        hashKey ^= Zobrist.piece(piece, square);
+        mirrorKey ^= Zobrist.piece(piece, Bitboards.MIRROR[boardSize][square]);
     }
 
     /**
@@ -161,52 +611,89 @@ public class PawntasticGame {
      * @return true if the state is terminal, false otherwise
      */
     public boolean isTerminalState() {
-        for (int col = 0; col < boardSize; col++) {
-            if (board[0][col] == PLAYER2 || board[boardSize - 1][col] == PLAYER1) {
-                return true;
-            }
+        if (getWinner() != 0) {
+            return true;
         }
 
-        if (getAllLegalMoves(PLAYER1).size() == 0 || getAllLegalMoves(PLAYER2).size() == 0) {
+        if (!hasAnyLegalMove(PLAYER1) || !hasAnyLegalMove(PLAYER2)) {
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Define whether a state is a terminal state for a caller that already generated the moves of
+     * the player to move, so only the opponent's moves still have to be looked at
+     * @param player the player to move
+     * @param count the number of moves generateMoves found for player
+     * @return true if the state is terminal, false otherwise
+     */
+    public boolean isTerminalState(int player, int count) {
+        return getWinner() != 0 || count == 0 || !hasAnyLegalMove(-player);
+    }
+
+    /**
+     * Check whether a player has at least one legal move, without generating them
+     * @param player the player
+     * @return true if some pawn of the player can push or capture
+     */
+    public boolean hasAnyLegalMove(int player) {
+        int n = boardSize;
+        int forward = (player == PLAYER1) ? n : -n;
+        long ownLo = (player == PLAYER1) ? blackLo : whiteLo;
+        long ownHi = (player == PLAYER1) ? blackHi : whiteHi;
+        long oppLo = (player == PLAYER1) ? whiteLo : blackLo;
+        long oppHi = (player == PLAYER1) ? whiteHi : blackHi;
+
+        // a double push needs the single push to be free, so pushes and captures are enough
+        long emptyLo = ~(blackLo | whiteLo) & Bitboards.FULL_LO[n];
+        long emptyHi = ~(blackHi | whiteHi) & Bitboards.FULL_HI[n];
+        if ((Bitboards.shiftLo(ownLo, ownHi, forward) & emptyLo) != 0
+                || (Bitboards.shiftHi(ownLo, ownHi, forward) & emptyHi) != 0) {
+            return true;
+        }
+
+        long leftLo = ownLo & Bitboards.NOT_FIRST_COL_LO[n];
+        long leftHi = ownHi & Bitboards.NOT_FIRST_COL_HI[n];
+        if ((Bitboards.shiftLo(leftLo, leftHi, forward - 1) & oppLo) != 0
+                || (Bitboards.shiftHi(leftLo, leftHi, forward - 1) & oppHi) != 0) {
+            return true;
+        }
+        long rightLo = ownLo & Bitboards.NOT_LAST_COL_LO[n];
+        long rightHi = ownHi & Bitboards.NOT_LAST_COL_HI[n];
+        return (Bitboards.shiftLo(rightLo, rightHi, forward + 1) & oppLo) != 0
+                || (Bitboards.shiftHi(rightLo, rightHi, forward + 1) & oppHi) != 0;
+    }
+
     /**
      * Get utility when at terminal state
      * @param player the current player
      * @return the utility value: 1 if current player win, 0 if tie, -1 if lose
      */
     public int getUtility(int player) {
-        for (int col = 0; col < boardSize; col++) {
-            if (board[0][col] == PLAYER2) {
-                return PLAYER2 == player ? 1 : -1;
-            }
-            if (board[boardSize - 1][col] == PLAYER1) {
-                return PLAYER1 == player ? 1 : -1;
-            }
+        int winner = getWinner();
+        if (winner == 0) {
+            return 0;
         }
-        return 0;
+        return winner == player ? 1 : -1;
     }
 
     /**
      * The heuristic function for the game, at current player
+     * The tuned evaluation of the board size if one is in use (see Evaluation.forSize), else the hand-written one:
+     * the cubic advancement of each side is kept up to date as pawns move, so this is O(1)
      * @param player the current player
-     * @return the heuristic value
+     * @return the heuristic value, between -1 and 1
      */
     public double eval(int player) {
-        int move1 = 0;
-        int move2 = 0;
-        for (int row = 0; row < boardSize; row++) {
-            for (int col = 0; col < boardSize; col++) {
-                if (board[row][col] == PLAYER1)
-                    move1 += Math.pow(row-1,3);
-                if (board[row][col] == PLAYER2)
-                    move2 += Math.pow(boardSize-row-2,3);
-            }
+        if (evaluation != null) {
+            Evaluation.features(this, features);
+            double value = evaluation.value(features);
+            return player == PLAYER1 ? value : -value;
         }
+        int move1 = advance1;
+        int move2 = advance2;
         if (move1 > move2){
             return PLAYER1 == player ? 1.0 * (move1-move2) / (move1+move2) : -1.0 * (move1-move2) / (move1+move2);
         }
@@ -238,9 +725,9 @@ public class PawntasticGame {
             System.out.print(boardSize - i + " ");
             
             for (int j = 0; j < boardSize; j++) {
-                if (board[i][j] == 1)
+                if (getPiece(i, j) == 1)
                     System.out.print("| B ");
-                else if (board[i][j] == -1)
+                else if (getPiece(i, j) == -1)
                     System.out.print("| W ");
                 else
                     System.out.print("|   ");
@@ -307,21 +794,13 @@ public class PawntasticGame {
                     System.out.println("Processing...");
                     System.out.println();
 
-                    Action move;
-                    if (agent == 1) {
-                        move = Random.randomMove(currentBoard, currentPlayer);
-                    } else if (agent == 2) {
-                        move = Minimax.minimax(currentBoard, currentPlayer);
-                    } else if (agent == 3) {
-                        move = MinimaxAlphaBeta.minimaxAlphaBeta(currentBoard, currentPlayer);
-                    } else if (agent == 4) {
-                        move = H_Minimax.minimax(currentBoard, currentPlayer);
-                    } else {
-                        move = H_MinimaxAlphaBeta.hMinimaxAlphaBeta(currentBoard, currentPlayer);
-                    }
+                    SearchResult result = Agents.get(agent).search(currentBoard, currentPlayer,
+                            SearchLimits.of(currentBoard));
+                    Action move = result.move;
                     currentBoard.makeMoves(move);
                     System.out.println("The bot just played " + convertColToCoordinator(move.getFromCol()) + convertRowToCoordinator(move.getFromRow()) + " to "
                             + convertColToCoordinator(move.getToCol()) + convertRowToCoordinator(move.getToRow()));
+                    System.out.println("(" + result.describe(currentBoard) + ")");
                     System.out.println();
                     moveCount++;
                 }
@@ -343,24 +822,16 @@ public class PawntasticGame {
                 if (currentPlayer == PLAYER1) {
                     System.out.println("Processing...");
                     System.out.println();
-                    Action move;
-                    if (agent == 1) {
-                        move = Random.randomMove(currentBoard, currentPlayer);
-                    } else if (agent == 2) {
-                        move = Minimax.minimax(currentBoard, currentPlayer);
-                    } else if (agent == 3) {
-                        move = MinimaxAlphaBeta.minimaxAlphaBeta(currentBoard, currentPlayer);
-                    } else if (agent == 4) {
-                        move = H_Minimax.minimax(currentBoard, currentPlayer);
-                    } else {
-                        move = H_MinimaxAlphaBeta.hMinimaxAlphaBeta(currentBoard, currentPlayer);
-                    }
+                    SearchResult result = Agents.get(agent).search(currentBoard, currentPlayer,
+                            SearchLimits.of(currentBoard));
+                    Action move = result.move;
                     currentBoard.makeMoves(move);
 
                     
 
                     System.out.println("The bot just played " + convertColToCoordinator(move.getFromCol()) + convertRowToCoordinator(move.getFromRow()) + " to "
                             + convertColToCoordinator(move.getToCol()) + convertRowToCoordinator(move.getToRow()));
+                    System.out.println("(" + result.describe(currentBoard) + ")");
                     System.out.println();
                     moveCount++;
                 }
@@ -383,9 +854,10 @@ public class PawntasticGame {
      * Helper method to process the user's move through the input
      * @param input the input that user enter
      * @param currentPlayer the current player
-     * @return the action that user want to make after processing the input
+     * @return the action that user want to make after processing the input, null if it is not a legal move
+     * @throws IllegalArgumentException if a column or row is not a coordinate
      */
-    private Action processUserMove(String input, int currentPlayer) {
+    public Action processUserMove(String input, int currentPlayer) {
         String[] parts = input.split(" ");
         if (parts.length != 4) {
             return null;
@@ -398,6 +870,16 @@ public class PawntasticGame {
         return isValidMove(move, currentPlayer) ? new Action(fromRow, fromCol, toRow, toCol) : null;
     }
 
+    /**
+     * Write a move the way the player enters it
+     * @param action the move
+     * @return the move as 'fromCol fromRow toCol toRow' (Ex: A 1 A 2)
+     */
+    public String moveToString(Action action) {
+        return convertColToCoordinator(action.getFromCol()) + " " + convertRowToCoordinator(action.getFromRow()) + " "
+                + convertColToCoordinator(action.getToCol()) + " " + convertRowToCoordinator(action.getToRow());
+    }
+
     /**
      * Check if the move is valid for the current player
      * @param action the action that player want to make
@@ -420,13 +902,11 @@ public class PawntasticGame {
      * @return the winner of the game, 0 if tie
      */
     private int getWinner() {
-        for (int col = 0; col < boardSize; col++) {
-            if (board[0][col] == PLAYER2) {
-                return PLAYER2;
-            }
-            if (board[boardSize - 1][col] == PLAYER1) {
-                return PLAYER1;
-            }
+        if (promoted2 != 0) {
+            return PLAYER2;
+        }
+        if (promoted1 != 0) {
+            return PLAYER1;
         }
         return 0;
     }
@@ -493,7 +973,7 @@ public class PawntasticGame {
         PawntasticGame example = new PawntasticGame(userGame);
 
         System.out.println(
-                "Choose your opponent:\n1. An agent that plays randomly\n2. An agent that uses MINIMAX\n3. An agent that uses MINIMAX with alpha-beta pruning\n4. An agent that uses H-MINIMAX with a fixed depth cutoff\n5. An agent that uses H-MINIMAX with a fixed depth cutoff and alpha-beta pruning");
+                "Choose your opponent:\n1. An agent that plays randomly\n2. An agent that uses MINIMAX\n3. An agent that uses MINIMAX with alpha-beta pruning\n4. An agent that uses H-MINIMAX with a fixed depth cutoff\n5. An agent that uses H-MINIMAX with a fixed depth cutoff and alpha-beta pruning\n6. An agent that uses Monte Carlo tree search\n7. An agent that solves the position with proof-number search");
         System.out.print("Your choice: ");
         int userAgent = scanner.nextInt();
         scanner.nextLine();
@@ -504,6 +984,33 @@ public class PawntasticGame {
             int userDepth = scanner.nextInt();
             scanner.nextLine();
             example.cutOffDepth = userDepth;
+
+            System.out.print("Please specify the time budget per move in milliseconds, the bot then searches as deep as time allows (0 for the fixed depth): ");
+            long userTime = scanner.nextLong();
+            scanner.nextLine();
+            example.moveTimeMillis = userTime;
+        }
+
+        if (userAgent == 6) {
+            System.out.print("Please specify the time budget per move in milliseconds (0 for " + Mcts.DEFAULT_TIME_MILLIS + "): ");
+            long userTime = scanner.nextLong();
+            scanner.nextLine();
+            example.moveTimeMillis = userTime;
+        }
+
+        if (userAgent == 7) {
+            System.out.print("Please specify the time budget per move in milliseconds, half of it to solve the position and the rest for an alpha-beta search if that fails (0 for " + ProofNumberSearch.DEFAULT_TIME_MILLIS + " to solve, then the fixed depth): ");
+            long userTime = scanner.nextLong();
+            scanner.nextLine();
+            example.moveTimeMillis = userTime;
+        }
+
+        if (userAgent == 3 || userAgent == 5 || userAgent == 6 || userAgent == 7) {
+            System.out.print("Please specify the number of search threads (" + Runtime.getRuntime().availableProcessors()
+                    + " cores available, 1 for a single thread): ");
+            int userThreads = scanner.nextInt();
+            scanner.nextLine();
+            example.searchThreads = Math.max(1, userThreads);
         }
 
         System.out.println("Do you want to play BLACK (B) or WHITE (W)? (WHITE plays first)");
@@ -0,0 +1,289 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Perft class that counts the positions reached after exactly a number of plies, to check and time move generation
+// perft(d) is the number of move sequences d plies long from a position, a game that ends earlier counting
+// nothing. The numbers only depend on the rules, so any change to the board or the move generator has to
+// leave them the same, and the time they take is the raw speed of move generation
+// The last ply is counted in bulk (countMoves, no moves made), counts of subtrees are kept in a lock-free
+// table by canonical key and depth since the same position (or its mirror image) is reached by many move
+// orders, and the root moves can be split over threads that share the table
+// Check mode walks the tree move by move and compares at every position the moves of generateMoves with
+// getAllLegalMoves, countMoves and getMove, with isMoveLegal over every from and to cell, and with hasAnyLegalMove
+public class Perft {
+    public static final int DEFAULT_CACHE_MEGABYTES = 64;
+    private static final int ENTRY_BYTES = 16;
+    private static final long DEPTH_KEY = 0x9E3779B97F4A7C15L; // times the depth, told apart in the cache
+
+    private final long[] keys; // key ^ count
+    private final long[] counts; // 0 for an empty slot, every cached count is at least 1
+    private final int mask;
+
+    /**
+     * Constructor for a perft with a cache
+     * @param megabytes the memory budget of the cache, 0 for none
+     */
+    public Perft(int megabytes) {
+        int slots = megabytes <= 0 ? 0 : (int) Math.min(1 << 29,
+                Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES));
+        keys = new long[slots];
+        counts = new long[slots];
+        mask = slots - 1;
+    }
+
+    /**
+     * Count the positions after a number of plies
+     * @param game the game configuration, left as it was
+     * @param player the player to move
+     * @param depth the plies
+     * @return the number of move sequences of that length
+     */
+    public long perft(PawntasticGame game, int player, int depth) {
+        int[][] buffers = new int[depth + 1][Move.MAX_MOVES];
+        return count(game, player, depth, buffers);
+    }
+
+    private long count(PawntasticGame game, int player, int depth, int[][] buffers) {
+        if (depth == 0)
+            return 1;
+        if (depth == 1) {
+            int moves = game.countMoves(player);
+            return game.isTerminalState(player, moves) ? 0 : moves;
+        }
+        long key = (game.getCanonicalKey() ^ Zobrist.side(player)) + depth * DEPTH_KEY; // mirror images count the same
+        if (mask >= 0) {
+            int slot = (int) key & mask;
+            long cached = counts[slot];
+            if (cached != 0 && (keys[slot] ^ cached) == key)
+                return cached;
+        }
+        int[] moves = buffers[depth];
+        int count = game.generateMoves(player, moves);
+        if (game.isTerminalState(player, count))
+            return 0;
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            int undo = game.makeMove(moves[i]);
+            total += count(game, -player, depth - 1, buffers);
+            game.unmakeMove(moves[i], undo);
+        }
+        if (mask >= 0 && total != 0) {
+            int slot = (int) key & mask;
+            keys[slot] = key ^ total;
+            counts[slot] = total;
+        }
+        return total;
+    }
+
+    /**
+     * Count the positions after a number of plies below each root move, the root moves on a thread pool
+     * @param game the game configuration, left as it was
+     * @param player the player to move
+     * @param depth the plies, at least 1
+     * @param threads the number of threads
+     * @return the count below each root move, in the order of generateMoves (empty if the game is over)
+     */
+    public long[] divide(PawntasticGame game, int player, int depth, int threads) {
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = game.generateMoves(player, moves);
+        if (game.isTerminalState(player, count))
+            return new long[0];
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Long>> subtrees = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                PawntasticGame child = game.cloneGame();
+                child.makeMove(moves[i]);
+                subtrees.add(pool.submit(() -> perft(child, -player, depth - 1)));
+            }
+            long[] result = new long[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = subtrees.get(i).get();
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perft interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Perft failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Walk the tree and compare the move generators at every position
+     * @param game the game configuration, left as it was
+     * @param player the player to move
+     * @param depth the plies
+     * @param errors where the disagreements go, at most 20 of them
+     * @return the number of positions compared
+     */
+    public static long check(PawntasticGame game, int player, int depth, List<String> errors) {
+        int n = game.boardSize;
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = game.generateMoves(player, moves);
+        List<String> problems = new ArrayList<>();
+
+        List<Action> actions = game.getAllLegalMoves(player);
+        if (actions.size() != count)
+            problems.add("getAllLegalMoves has " + actions.size() + " moves, generateMoves " + count);
+        if (game.countMoves(player) != count)
+            problems.add("countMoves is " + game.countMoves(player) + ", generateMoves has " + count);
+        for (int i = 0; i < Math.min(count, game.countMoves(player)); i++) {
+            if (!contains(moves, count, game.getMove(player, i)))
+                problems.add("getMove " + i + " is not generated: " + describe(game, game.getMove(player, i)));
+        }
+        if (game.hasAnyLegalMove(player) != (count > 0))
+            problems.add("hasAnyLegalMove is " + game.hasAnyLegalMove(player) + " with " + count + " moves");
+        // isMoveLegal over every pair of cells: legal exactly for the generated moves
+        for (int from = 0; from < n * n; from++) {
+            for (int to = 0; to < n * n; to++) {
+                Action action = new Action(from / n, from % n, to / n, to % n);
+                boolean generated = contains(moves, count, game.encodeMove(action));
+                if (game.isMoveLegal(action, player) != generated)
+                    problems.add("isMoveLegal is " + !generated + " for " + game.moveToString(action));
+            }
+        }
+        for (String problem : problems) {
+            if (errors.size() < 20)
+                errors.add(problem + " (" + board(game) + ", " + (player == PawntasticGame.PLAYER2 ? "W" : "B") + ")");
+        }
+
+        long positions = 1;
+        if (depth > 0 && !game.isTerminalState(player, count)) {
+            for (int i = 0; i < count; i++) {
+                int undo = game.makeMove(moves[i]);
+                positions += check(game, -player, depth - 1, errors);
+                game.unmakeMove(moves[i], undo);
+            }
+        }
+        return positions;
+    }
+
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+        return false;
+    }
+
+    private static String describe(PawntasticGame game, int move) {
+        return game.moveToString(game.toAction(move));
+    }
+
+    /**
+     * Set up a position from its rows, top row first, B, W or . per cell (as GameServer's BOARD)
+     * @param board the rows separated by /, e.g. ..../BWBB/.WWW/....
+     * @return the game with that position
+     * @throws IllegalArgumentException if the rows do not make a square board of a supported size, a side has
+     *         more pawns than the board has columns (the move buffers hold Move.MAX_MOVES) or a pawn is already
+     *         on its promotion row
+     */
+    public static PawntasticGame parse(String board) {
+        String[] rows = board.split("/");
+        int n = rows.length;
+        if (n < Bitboards.MIN_SIZE || n > Bitboards.MAX_SIZE)
+            throw new IllegalArgumentException("Invalid board size: " + n);
+        PawntasticGame game = new PawntasticGame(n);
+        int black = 0;
+        int white = 0;
+        for (int row = 0; row < n; row++) {
+            if (rows[row].length() != n)
+                throw new IllegalArgumentException("Row " + (row + 1) + " is not " + n + " cells long: " + rows[row]);
+            for (int col = 0; col < n; col++) {
+                char cell = rows[row].charAt(col);
+                if (cell != 'B' && cell != 'W' && cell != '.')
+                    throw new IllegalArgumentException("Invalid cell " + cell + " in " + rows[row]);
+                if ((cell == 'B' && row == n - 1) || (cell == 'W' && row == 0))
+                    throw new IllegalArgumentException("Pawn " + cell + " on its promotion row in " + rows[row]);
+                black += cell == 'B' ? 1 : 0;
+                white += cell == 'W' ? 1 : 0;
+                game.setPiece(row, col, cell == 'B' ? PawntasticGame.PLAYER1 : cell == 'W' ? PawntasticGame.PLAYER2 : 0);
+            }
+        }
+        if (black > n || white > n)
+            throw new IllegalArgumentException("More than " + n + " pawns of a side: " + black + " B, " + white + " W");
+        return game;
+    }
+
+    /**
+     * Write a position as parse reads it
+     * @param game the game configuration
+     * @return the rows, top row first
+     */
+    public static String board(PawntasticGame game) {
+        StringBuilder board = new StringBuilder();
+        for (int row = 0; row < game.boardSize; row++) {
+            if (row > 0)
+                board.append('/');
+            for (int col = 0; col < game.boardSize; col++) {
+                int piece = game.getPiece(row, col);
+                board.append(piece == PawntasticGame.PLAYER1 ? 'B' : piece == PawntasticGame.PLAYER2 ? 'W' : '.');
+            }
+        }
+        return board.toString();
+    }
+
+    /**
+     * Print perft 1 to maxDepth with nodes per second, the counts below each root move, or the check
+     * Usage: java Perft boardSize|board maxDepth [threads] [W|B] [perft|divide|check|nocache]
+     * A board is written as rows, top row first, e.g. ..../BWBB/.WWW/.... (WHITE moves first by default)
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java Perft boardSize|board maxDepth [threads] [W|B] [perft|divide|check|nocache]");
+            return;
+        }
+        PawntasticGame game;
+        try {
+            game = args[0].contains("/") ? parse(args[0]) : new PawntasticGame(Integer.parseInt(args[0]));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid board: " + e.getMessage());
+            return;
+        }
+        int maxDepth = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int player = args.length > 3 && args[3].equalsIgnoreCase("B") ? PawntasticGame.PLAYER1 : PawntasticGame.PLAYER2;
+        String mode = args.length > 4 ? args[4] : "perft";
+        System.out.println(board(game) + " " + (player == PawntasticGame.PLAYER2 ? "W" : "B"));
+
+        if (mode.equals("check")) {
+            List<String> errors = new ArrayList<>();
+            long start = System.nanoTime();
+            long positions = check(game, player, maxDepth, errors);
+            System.out.printf("Compared the move generators on %d positions in %.1f s: %s%n", positions,
+                    (System.nanoTime() - start) / 1e9, errors.isEmpty() ? "all agree" : "DISAGREEMENTS");
+            for (String error : errors)
+                System.out.println("  " + error);
+            return;
+        }
+        Perft perft = new Perft(mode.equals("nocache") ? 0 : DEFAULT_CACHE_MEGABYTES);
+        if (mode.equals("divide")) {
+            int[] moves = new int[Move.MAX_MOVES];
+            game.generateMoves(player, moves);
+            long[] subtrees = perft.divide(game, player, maxDepth, threads);
+            long total = 0;
+            for (int i = 0; i < subtrees.length; i++) {
+                System.out.printf("%s: %d%n", describe(game, moves[i]), subtrees[i]);
+                total += subtrees[i];
+            }
+            System.out.println("Total: " + total);
+            return;
+        }
+        System.out.println("depth             nodes    seconds        nodes/s");
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long start = System.nanoTime();
+            long nodes = 0;
+            for (long subtree : perft.divide(game, player, depth, threads))
+                nodes += subtree;
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%5d %17d %10.3f %14.0f%n", depth, nodes, seconds, nodes / seconds);
+        }
+    }
+}
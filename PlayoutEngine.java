@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// PlayoutEngine class that plays games out with uniformly random moves, for playout statistics and MCTS
+// A move is picked from the move sets of the position, worked out once per ply (see randomMove), so a
+// playout generates no move lists and allocates nothing. Every engine owns its SplittableRandom, and a
+// batch run splits one seed into a stream per batch, so the same seed plays the same games on any
+// number of threads
+public class PlayoutEngine {
+    public static final int BATCH_GAMES = 4096; // games per task of a batch run
+
+    private final SplittableRandom random;
+    private final int[] moves = new int[SearchContext.MAX_PLY]; // the moves of the running playout
+    private final int[] undo = new int[SearchContext.MAX_PLY];
+    public long plies; // plies played by all playouts of this engine
+
+    /**
+     * Constructor for the engine
+     * @param random the random numbers of the engine, used by one thread only
+     */
+    public PlayoutEngine(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Play a game out with random moves and take them back again
+     * @param game the game configuration, as it was afterwards
+     * @param player the player to move
+     * @param takePromotions true to play a move that wins on the spot whenever there is one (as MCTS does)
+     * @return the winner, 0 for a draw
+     */
+    public int playout(PawntasticGame game, int player, boolean takePromotions) {
+        int length = 0;
+        int winner;
+        while (true) {
+            int move = game.randomMove(player, random, takePromotions);
+            if (move == 0) {
+                winner = game.getUtility(PawntasticGame.PLAYER1);
+                break;
+            }
+            moves[length] = move;
+            undo[length] = game.makeMove(move);
+            length++;
+            player = -player;
+        }
+        plies += length;
+        while (length > 0) {
+            length--;
+            game.unmakeMove(moves[length], undo[length]);
+        }
+        return winner;
+    }
+
+    /**
+     * Stats class with the results of a batch of random games from the starting position
+     */
+    public static class Stats {
+        public final int boardSize;
+        public long games;
+        public long whiteWins; // PLAYER2, who moves first
+        public long blackWins;
+        public long draws;
+        public long plies;
+        public long elapsedNanos;
+
+        public Stats(int boardSize) {
+            this.boardSize = boardSize;
+        }
+
+        public double gamesPerSecond() {
+            return games * 1e9 / Math.max(1L, elapsedNanos);
+        }
+
+        // add the games of a finished batch
+        void add(Stats batch) {
+            games += batch.games;
+            whiteWins += batch.whiteWins;
+            blackWins += batch.blackWins;
+            draws += batch.draws;
+            plies += batch.plies;
+        }
+    }
+
+    /**
+     * Play random games from the starting position, WHITE to move as in gamePlay, in batches on a thread pool
+     * @param boardSize the board size
+     * @param games the number of games
+     * @param threads the number of threads
+     * @param seed the seed of the whole run
+     * @return the results
+     */
+    public static Stats run(int boardSize, long games, int threads, long seed) {
+        long start = System.nanoTime();
+        SplittableRandom master = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<Stats>> batches = new ArrayList<>();
+        try {
+            for (long first = 0; first < games; first += BATCH_GAMES) {
+                long count = Math.min(BATCH_GAMES, games - first);
+                SplittableRandom random = master.split(); // split in order, so the batches do not depend on the threads
+                batches.add(pool.submit(() -> playBatch(boardSize, count, random)));
+            }
+            Stats total = new Stats(boardSize);
+            for (Future<Stats> batch : batches) {
+                total.add(batch.get());
+            }
+            total.elapsedNanos = System.nanoTime() - start;
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Playouts interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Playout batch failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // one task of run
+    private static Stats playBatch(int boardSize, long games, SplittableRandom random) {
+        PawntasticGame game = new PawntasticGame(boardSize);
+        PlayoutEngine engine = new PlayoutEngine(random);
+        Stats stats = new Stats(boardSize);
+        for (long i = 0; i < games; i++) {
+            int winner = engine.playout(game, PawntasticGame.PLAYER2, false);
+            if (winner == PawntasticGame.PLAYER2)
+                stats.whiteWins++;
+            else if (winner == PawntasticGame.PLAYER1)
+                stats.blackWins++;
+            else
+                stats.draws++;
+        }
+        stats.games = games;
+        stats.plies = engine.plies;
+        return stats;
+    }
+
+    /**
+     * Report games per second and win rates of random play for every board size
+     * Usage: java PlayoutEngine [games] [threads] [seed] [boardSize...]
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 2024;
+        int[] sizes = {4, 5, 6, 8, 10};
+        if (args.length > 3) {
+            sizes = new int[args.length - 3];
+            for (int i = 3; i < args.length; i++) {
+                sizes[i - 3] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("size      games   games/s  white win  black win   draw  plies/game");
+        for (int size : sizes) {
+            Stats stats = run(size, games, threads, seed);
+            System.out.printf("%2dx%-2d %10d %9.0f %9.1f%% %9.1f%% %5.1f%% %11.1f%n", size, size, stats.games,
+                    stats.gamesPerSecond(), 100.0 * stats.whiteWins / stats.games,
+                    100.0 * stats.blackWins / stats.games, 100.0 * stats.draws / stats.games,
+                    (double) stats.plies / stats.games);
+        }
+    }
+}
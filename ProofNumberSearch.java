@@ -0,0 +1,394 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+// ProofNumberSearch class that solves a position: proves whether the side to move wins, draws or loses
+// It runs depth-first proof-number search (df-pn) twice, first to prove a win, then, if there is none,
+// to prove at least a draw. A node's proof number phi is how many leaves still have to be proved for
+// the side to move to reach the goal and its disproof number delta how many for it to fail, seen from
+// the side to move so every node is handled alike: phi is the least delta of the children and delta the
+// sum of their phis. The search always goes into the child with the least delta, for as long as phi and
+// delta stay under thresholds passed down from the parent, and keeps them in a transposition table.
+// A solver is used by one thread at a time; as an agent, every search solves on a new solver of its own,
+// so games searched side by side do not wait on each other. Proven positions go to a cache shared by all
+// solvers, so a position solved once answers instantly afterwards
+public class ProofNumberSearch implements SearchAgent {
+    public static final int INFINITY = 1 << 29; // proof or disproof number of a solved node
+    public static final int DEFAULT_MEGABYTES = 64;
+    public static final int SEARCH_MEGABYTES = 16; // the table of each agent search
+    public static final int MAX_SOLVED = 1 << 20; // proven positions cached before the cache starts over
+    public static final long DEFAULT_TIME_MILLIS = 10_000; // budget of the agent before it falls back to a search
+    private static final int WIN = 0; // goal: the attacker wins
+    private static final int NOT_LOSE = 1; // goal: the attacker wins or draws
+    private static final int ENTRY_BYTES = 20;
+    private static final long[] GOAL_KEYS = {
+        0x6A09E667F3BCC908L, 0xBB67AE8584CAA73BL, 0x3C6EF372FE94F82BL, 0xA54FF53A5F1D36F1L
+    }; // told apart in the table: by goal, then by attacker
+
+    private static ProofNumberSearch shared;
+    // proven positions of every solver, by canonical key and side to move: the value + 1 in the low 2 bits,
+    // above them the move that keeps it in the canonical orientation (0 for a lost position)
+    private static final ConcurrentHashMap<Long, Integer> SOLVED = new ConcurrentHashMap<>();
+
+    private final int megabytes;
+    private final int bucketMask;
+    // allocated on the first solve, so the agent that hands its searches to solvers of their own has none
+    private long[] keys;
+    private int[] phis;
+    private int[] deltas;
+    private int[] moves; // the move that proved the node (packed, see Move), 0 if not proved
+
+    // the problem being solved
+    private PawntasticGame game;
+    private int attacker;
+    private int goal;
+    private SearchContext ctx;
+
+    /**
+     * Result class with the solved value of a position and the move that reaches it
+     */
+    public static class Result {
+        public final int value; // 1 the player wins, 0 draw, -1 the player loses (as getUtility)
+        public final boolean proven; // false if the time budget ran out first, value and move are then unset
+        public final Action move; // a move that keeps the value, null if not proven or no move
+        public final long nodes;
+
+        public Result(int value, boolean proven, Action move, long nodes) {
+            this.value = value;
+            this.proven = proven;
+            this.move = move;
+            this.nodes = nodes;
+        }
+    }
+
+    /**
+     * Constructor for the solver
+     * @param megabytes the memory budget of its table
+     */
+    public ProofNumberSearch(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("Invalid table size: " + megabytes + " MB");
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES / 2);
+        buckets = Math.min(buckets, 1 << 29);
+        this.megabytes = megabytes;
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Get the solver of the command line tools, one thread at a time
+     * @return the shared solver, created with the default budget on first use
+     */
+    public static synchronized ProofNumberSearch shared() {
+        if (shared == null) {
+            shared = new ProofNumberSearch(DEFAULT_MEGABYTES);
+        }
+        return shared;
+    }
+
+    /**
+     * Forget the proven positions, so the next solve of any of them searches again (as the benchmarks need)
+     */
+    public static void clearSolved() {
+        SOLVED.clear();
+    }
+
+    /**
+     * proofNumberSearch method for the solver agent: plays the proven move, or falls back to
+     * H_MinimaxAlphaBeta if the position is not solved within DEFAULT_TIME_MILLIS
+     * @param game the game configuration
+     * @param player the current player
+     * @return the best action
+     */
+    public static Action proofNumberSearch(PawntasticGame game, int player) {
+        return new ProofNumberSearch(SEARCH_MEGABYTES).search(game, player, SearchLimits.of(game)).move;
+    }
+
+    @Override
+    public String name() {
+        return "ProofNumberSearch";
+    }
+
+    /**
+     * Play the proven move, or fall back to H_MinimaxAlphaBeta if the position is not solved within half the
+     * time budget (DEFAULT_TIME_MILLIS without one) and half the node cap; the proof runs on a new solver
+     * with this one's table budget, so searches of several games run at once
+     * @param game the game configuration
+     * @param player the current player
+     * @param limits the limits, the fallback search getting what the solver left of them
+     * @return the proven move with its value, else the fallback's move (the solver's nodes counted in); the
+     *         proof is recorded as a search of its own (see SearchMetrics), the fallback records itself
+     */
+    @Override
+    public SearchResult search(PawntasticGame game, int player, SearchLimits limits) {
+        long start = System.nanoTime();
+        Result result = new ProofNumberSearch(megabytes).solve(game, player, limits.timeMillis > 0
+                ? Math.max(1, limits.timeMillis / 2) : DEFAULT_TIME_MILLIS, (limits.nodes + 1) / 2);
+        game.nodesSearched += result.nodes;
+        long elapsed = System.nanoTime() - start;
+        int[] line = result.move != null ? new int[] {game.encodeMove(result.move)} : new int[0];
+        SearchResult proof = SearchMetrics.record(name(), game, new SearchResult(result.move,
+                result.proven ? result.value : Double.NaN, line, result.nodes, 0, elapsed,
+                SearchMetrics.ofNodes(elapsed, result.nodes)));
+        if (result.proven && result.move != null) {
+            return proof;
+        }
+        // the fallback gets what the proof left of the budget
+        long elapsedMillis = elapsed / 1_000_000;
+        SearchResult fallback = new H_MinimaxAlphaBeta().search(game, player, new SearchLimits(limits.depth,
+                limits.nodes > 0 ? Math.max(1, limits.nodes - result.nodes) : 0,
+                limits.timeMillis > 0 ? Math.max(1, limits.timeMillis - elapsedMillis) : 0, limits.threads));
+        return new SearchResult(fallback.move, fallback.score, fallback.principalVariation,
+                result.nodes + fallback.nodes, fallback.depth, System.nanoTime() - start, fallback.metrics);
+    }
+
+    /**
+     * Solve a position
+     * @param game the game configuration, left as it was
+     * @param player the player to move
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     * @return the value for player and a move that keeps it
+     */
+    public Result solve(PawntasticGame game, int player, long timeMillis) {
+        return solve(game, player, timeMillis, 0);
+    }
+
+    /**
+     * Solve a position within a time budget and a node cap
+     * @param game the game configuration, left as it was
+     * @param player the player to move
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     * @param nodes the most nodes, 0 for no cap
+     * @return the value for player and a move that keeps it
+     */
+    public synchronized Result solve(PawntasticGame game, int player, long timeMillis, long nodes) {
+        long solvedKey = game.getCanonicalKey() ^ Zobrist.side(player);
+        Integer solved = SOLVED.get(solvedKey);
+        if (solved != null) {
+            int move = solved >> 2;
+            if (move == 0) {
+                int[] buffer = new int[Move.MAX_MOVES];
+                move = game.generateMoves(player, buffer) > 0 ? buffer[0] : 0;
+            } else {
+                move = game.canonicalMove(move);
+            }
+            return new Result((solved & 3) - 1, true, move != 0 ? game.toAction(move) : null, 0);
+        }
+        if (keys == null) {
+            keys = new long[(bucketMask + 1) * 2];
+            phis = new int[(bucketMask + 1) * 2];
+            deltas = new int[(bucketMask + 1) * 2];
+            moves = new int[(bucketMask + 1) * 2];
+        }
+        Result result = prove(game, player, timeMillis, nodes);
+        if (result.proven && result.move != null) {
+            if (SOLVED.size() >= MAX_SOLVED)
+                SOLVED.clear();
+            int move = result.value < 0 ? 0 : game.canonicalMove(game.encodeMove(result.move));
+            SOLVED.put(solvedKey, move << 2 | (result.value + 1));
+        }
+        return result;
+    }
+
+    // solve on this solver's table
+    private Result prove(PawntasticGame game, int player, long timeMillis, long nodes) {
+        this.game = game;
+        this.attacker = player;
+        this.ctx = new SearchContext(timeMillis);
+        ctx.nodeLimit = nodes > 0 ? nodes : Long.MAX_VALUE;
+        try {
+            // a win first: if the player cannot win, whether it can hold the draw
+            int move = prove(WIN);
+            if (move > 0)
+                return new Result(1, true, game.toAction(move), ctx.nodes);
+            if (move == 0) {
+                move = prove(NOT_LOSE);
+                if (move > 0)
+                    return new Result(0, true, game.toAction(move), ctx.nodes);
+                if (move == 0) {
+                    int count = game.generateMoves(player, ctx.moves[0]);
+                    Action any = count > 0 ? game.toAction(ctx.moves[0][0]) : null;
+                    return new Result(-1, true, any, ctx.nodes);
+                }
+            }
+            return new Result(0, false, null, ctx.nodes);
+        } finally {
+            this.game = null;
+            this.ctx = null;
+        }
+    }
+
+    /**
+     * Prove or disprove a goal for the attacker at the root
+     * @param goal WIN or NOT_LOSE
+     * @return the move that proves it, 0 if it is disproved, -1 if the search ran out of time
+     */
+    private int prove(int goal) {
+        this.goal = goal;
+        mid(attacker, INFINITY, INFINITY, 0);
+        int slot = find(key(attacker));
+        if (slot >= 0 && phis[slot] == 0)
+            return moves[slot] != 0 ? game.canonicalMove(moves[slot]) : -1; // a terminal root has no move to play
+        if (slot >= 0 && deltas[slot] == 0)
+            return 0;
+        return -1;
+    }
+
+    /**
+     * Expand a node until its proof or disproof number reaches its threshold
+     * @param player the player to move
+     * @param thresholdPhi the proof number to stop at
+     * @param thresholdDelta the disproof number to stop at
+     * @param ply the distance from the root
+     */
+    private void mid(int player, int thresholdPhi, int thresholdDelta, int ply) {
+        long key = key(player);
+        if (ctx.visitNode()) {
+            return;
+        }
+        int[] buffer = ctx.moves[ply];
+        int count = game.generateMoves(player, buffer);
+        int outcome = outcome(player, count, ply);
+        if (outcome != 0) {
+            store(key, outcome > 0 ? 0 : INFINITY, outcome > 0 ? INFINITY : 0, 0);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (Move.isPromotion(buffer[i])) {
+                // winning on the spot reaches either goal of whoever is to move
+                store(key, 0, INFINITY, game.canonicalMove(buffer[i]));
+                return;
+            }
+        }
+        // mirrored moves lead to the same positions, counting them twice would skew the disproof number
+        count = game.removeMirrorMoves(buffer, count);
+
+        while (true) {
+            int phi = INFINITY;
+            long delta = 0;
+            int best = 0;
+            int bestPhi = 0;
+            int bestDelta = INFINITY + 1;
+            int secondDelta = INFINITY;
+            for (int i = 0; i < count; i++) {
+                int undo = game.makeMove(buffer[i]);
+                int slot = find(key(-player));
+                game.unmakeMove(buffer[i], undo);
+                int childPhi = slot >= 0 ? phis[slot] : 1;
+                int childDelta = slot >= 0 ? deltas[slot] : 1;
+                if (childDelta < bestDelta) {
+                    secondDelta = bestDelta;
+                    bestDelta = childDelta;
+                    bestPhi = childPhi;
+                    best = i;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+                phi = Math.min(phi, childDelta);
+                delta += childPhi;
+            }
+            delta = Math.min(delta, INFINITY);
+            if (phi >= thresholdPhi || delta >= thresholdDelta || ctx.stopped) {
+                store(key, phi, (int) delta, phi == 0 ? game.canonicalMove(buffer[best]) : 0);
+                return;
+            }
+            // the child's phi adds to this node's delta, its delta is this node's phi
+            int childThresholdPhi = (int) Math.min(INFINITY, thresholdDelta - delta + bestPhi);
+            int childThresholdDelta = Math.min(thresholdPhi, Math.min(secondDelta, INFINITY - 1) + 1);
+            int move = buffer[best];
+            int undo = game.makeMove(move);
+            mid(-player, childThresholdPhi, childThresholdDelta, ply + 1);
+            game.unmakeMove(move, undo);
+        }
+    }
+
+    /**
+     * Decide a node without expanding it, at the end of the game or from the tablebase. The root is not
+     * looked up: the tablebase has its value but not the move to play, which has to come from its children
+     * @param player the player to move
+     * @param count the number of moves of player
+     * @param ply the distance from the root
+     * @return 1 if the side to move reaches its goal, -1 if it does not, 0 if the node is open
+     */
+    private int outcome(int player, int count, int ply) {
+        int forPlayer; // 1 the player to move wins, 0 draw, -1 it loses
+        if (game.isTerminalState(player, count)) {
+            forPlayer = game.getUtility(player);
+        } else if (ply == 0) {
+            return 0;
+        } else {
+            int known = Tablebase.probeAny(game, player);
+            if (known == Tablebase.UNKNOWN)
+                return 0;
+            forPlayer = Integer.signum(known);
+        }
+        int forAttacker = player == attacker ? forPlayer : -forPlayer;
+        boolean reached = goal == WIN ? forAttacker > 0 : forAttacker >= 0;
+        return reached == (player == attacker) ? 1 : -1;
+    }
+
+    // the table key of the game's position (or its mirror image) with a player to move, for the goal being proved
+    private long key(int player) {
+        int side = attacker == PawntasticGame.PLAYER1 ? 0 : 1;
+        return game.getCanonicalKey() ^ Zobrist.side(player) ^ GOAL_KEYS[goal * 2 + side];
+    }
+
+    /**
+     * Look a node up
+     * @param key the node key
+     * @return the slot of the node, -1 if it is not in the table
+     */
+    private int find(long key) {
+        int slot = ((int) key & bucketMask) << 1;
+        if (keys[slot] == key && (phis[slot] | deltas[slot]) != 0)
+            return slot;
+        if (keys[slot + 1] == key && (phis[slot + 1] | deltas[slot + 1]) != 0)
+            return slot + 1;
+        return -1;
+    }
+
+    /**
+     * Store a node: solved nodes go to the first slot of a bucket, open ones to the second
+     * @param key the node key
+     * @param phi the proof number
+     * @param delta the disproof number
+     * @param move the move that proved the node, 0 if none
+     */
+    private void store(long key, int phi, int delta, int move) {
+        int slot = ((int) key & bucketMask) << 1;
+        boolean solved = phi == 0 || delta == 0;
+        if (keys[slot + 1] == key || (!solved && keys[slot] != key)) {
+            slot++;
+        }
+        keys[slot] = key;
+        phis[slot] = phi;
+        deltas[slot] = delta;
+        moves[slot] = move;
+    }
+
+    /**
+     * Solve the starting positions, with WHITE to move as in gamePlay
+     * Usage: java ProofNumberSearch [timeMillis] [boardSize...]
+     */
+    public static void main(String[] args) {
+        long time = args.length > 0 ? Long.parseLong(args[0]) : 60_000;
+        int[] sizes = {4, 5, 6};
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                sizes[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int size : sizes) {
+            PawntasticGame game = new PawntasticGame(size);
+            long start = System.nanoTime();
+            Result result = shared().solve(game, PawntasticGame.PLAYER2, time);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (!result.proven) {
+                System.out.printf("%dx%d: not solved in %.1f s (%d nodes)%n", size, size, seconds, result.nodes);
+            } else {
+                String value = result.value > 0 ? "WHITE wins" : result.value < 0 ? "BLACK wins" : "draw";
+                String move = result.move == null ? "" : String.format(", play (%d,%d) to (%d,%d)",
+                        result.move.getFromRow(), result.move.getFromCol(), result.move.getToRow(), result.move.getToCol());
+                System.out.printf("%dx%d: %s%s, %.1f s (%d nodes)%n", size, size, value, move, seconds, result.nodes);
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 // Random class to allow bot to make random moves (Agent 1)
-import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class Random {
+public class Random implements SearchAgent {
     /**
      * randomMove method to allow bot to make random moves
      * @param game the game configuration
@@ -9,8 +9,26 @@ public class Random {
      * @return the Action that the bot will take after moving a random legal move
      */
     public static Action randomMove(PawntasticGame game, int player) {
-        List<Action> allMoves = game.getAllLegalMoves(player);
-        int randomNum = (int) Math.random() * allMoves.size();
-        return allMoves.get(randomNum);
+        return new Random().search(game, player, SearchLimits.of(game)).move;
+    }
+
+    @Override
+    public String name() {
+        return "Random";
+    }
+
+    /**
+     * Pick a random legal move, the limits do not matter
+     * @param game the game configuration
+     * @param player the current player
+     * @param limits the search limits (none apply)
+     * @return the move, not scored
+     */
+    @Override
+    public SearchResult search(PawntasticGame game, int player, SearchLimits limits) {
+        long start = System.nanoTime();
+        // pick the move by number, no list of all the moves and no generator shared between threads
+        int randomNum = ThreadLocalRandom.current().nextInt(game.countMoves(player));
+        return SearchResult.unsearched(game, game.getMove(player, randomNum), Double.NaN, start);
     }
 }
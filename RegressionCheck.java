@@ -0,0 +1,330 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// RegressionCheck class that compares the engine with slower references it has to agree with exactly
+// The positions are those of seeded random games, the same on every run. Rules mode compares the bitboard
+// game with the original int[][] board (Reference, the code PawntasticGame started from): the move list,
+// the position after each move and after taking it back, terminal detection, utility and the hand-written
+// eval, to the last bit. Search mode compares the exact value of the alpha-beta agent, searched straight
+// to the end and deepened with aspiration windows, with plain Minimax's, at every position Minimax solves
+// within a node cap.
+// Run it where there is no opening book file (book-<size>.bin), the agents would play book moves unscored
+public class RegressionCheck {
+    public static final long SEED = 20240601L;
+    public static final long MINIMAX_NODES = 2_000_000; // positions Minimax does not solve within this are skipped
+
+    /**
+     * Reference class with the original int[][] board and its rules, kept as they were
+     */
+    static class Reference {
+        final int boardSize;
+        final int[][] board;
+
+        /**
+         * Constructor for a copy of a reference
+         * @param other the reference to copy
+         */
+        Reference(Reference other) {
+            boardSize = other.boardSize;
+            board = new int[boardSize][];
+            for (int row = 0; row < boardSize; row++) {
+                board[row] = other.board[row].clone();
+            }
+        }
+
+        /**
+         * Constructor for the reference of a position
+         * @param game the game configuration to copy the pawns from
+         */
+        Reference(PawntasticGame game) {
+            boardSize = game.boardSize;
+            board = new int[boardSize][boardSize];
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    board[row][col] = game.getPiece(row, col);
+                }
+            }
+        }
+
+        List<Action> getAllLegalMoves(int player) {
+            List<Action> legalMoves = new ArrayList<>();
+            int opponent = -player;
+            int direction = (player == PawntasticGame.PLAYER1) ? 1 : -1;
+
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    if (board[row][col] == player) {
+                        int newRow = row + direction;
+
+                        // case when the pawn can MOVE UPward/DOWNward(no opponent's pawn block)
+                        if (isValidPosition(newRow, col) && board[newRow][col] == 0) {
+                            // promotion
+                            if (newRow == 0 || newRow == boardSize - 1) {
+                                legalMoves.add(new Action(row, col, newRow, col, true));
+                            } else
+                                legalMoves.add(new Action(row, col, newRow, col));
+                        }
+
+                        // case when the pawn can move 2 squares
+                        if (boardSize >= 6) {
+                            if (row == (player == PawntasticGame.PLAYER1 ? 1 : boardSize - 2)
+                                    && isValidPosition(newRow + direction, col)
+                                    && board[newRow][col] == 0 && board[newRow + direction][col] == 0) {
+                                legalMoves.add(new Action(row, col, newRow + direction, col));
+                            }
+                        }
+
+                        // case when pawn can CAPTURE opponent's pawn
+                        int[] captureCols = { col - 1, col + 1 };
+                        for (int captureCol : captureCols) {
+                            if (isValidPosition(newRow, captureCol) && board[newRow][captureCol] == opponent) {
+                                legalMoves.add(new Action(row, col, newRow, captureCol));
+                            }
+                        }
+                    }
+                }
+            }
+            return legalMoves;
+        }
+
+        void makeMoves(Action action) {
+            board[action.getToRow()][action.getToCol()] = board[action.getFromRow()][action.getFromCol()];
+            board[action.getFromRow()][action.getFromCol()] = 0;
+        }
+
+        boolean isTerminalState() {
+            for (int col = 0; col < boardSize; col++) {
+                if (board[0][col] == PawntasticGame.PLAYER2 || board[boardSize - 1][col] == PawntasticGame.PLAYER1) {
+                    return true;
+                }
+            }
+            return getAllLegalMoves(PawntasticGame.PLAYER1).size() == 0
+                    || getAllLegalMoves(PawntasticGame.PLAYER2).size() == 0;
+        }
+
+        int getUtility(int player) {
+            for (int col = 0; col < boardSize; col++) {
+                if (board[0][col] == PawntasticGame.PLAYER2) {
+                    return PawntasticGame.PLAYER2 == player ? 1 : -1;
+                }
+                if (board[boardSize - 1][col] == PawntasticGame.PLAYER1) {
+                    return PawntasticGame.PLAYER1 == player ? 1 : -1;
+                }
+            }
+            return 0;
+        }
+
+        double eval(int player) {
+            int move1 = 0;
+            int move2 = 0;
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    if (board[row][col] == PawntasticGame.PLAYER1)
+                        move1 += Math.pow(row - 1, 3);
+                    if (board[row][col] == PawntasticGame.PLAYER2)
+                        move2 += Math.pow(boardSize - row - 2, 3);
+                }
+            }
+            if (move1 > move2) {
+                return PawntasticGame.PLAYER1 == player ? 1.0 * (move1 - move2) / (move1 + move2)
+                        : -1.0 * (move1 - move2) / (move1 + move2);
+            } else if (move1 < move2)
+                return PawntasticGame.PLAYER2 == player ? 1.0 * (move2 - move1) / (move1 + move2)
+                        : -1.0 * (move2 - move1) / (move1 + move2);
+            return 0.0;
+        }
+
+        boolean samePawns(PawntasticGame game) {
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    if (board[row][col] != game.getPiece(row, col))
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isValidPosition(int row, int col) {
+            return row >= 0 && row < boardSize && col >= 0 && col < boardSize;
+        }
+    }
+
+    /**
+     * Get the positions of seeded random games, each with the player to move
+     * @param size the board size
+     * @param games the number of games
+     * @param players where the player to move of each position goes
+     * @return the positions, before every move of every game
+     */
+    public static List<PawntasticGame> randomPositions(int size, int games, List<Integer> players) {
+        java.util.Random random = new java.util.Random(SEED + size);
+        List<PawntasticGame> positions = new ArrayList<>();
+        int[] moves = new int[Move.MAX_MOVES];
+        for (int g = 0; g < games; g++) {
+            PawntasticGame game = new PawntasticGame(size);
+            int player = PawntasticGame.PLAYER2;
+            while (true) {
+                int count = game.generateMoves(player, moves);
+                if (game.isTerminalState(player, count))
+                    break;
+                positions.add(game.cloneGame());
+                players.add(player);
+                game.makeMove(moves[random.nextInt(count)]);
+                player = -player;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Compare the alpha-beta values with Minimax's
+     * @param game the position, left as it was
+     * @param player the player to move
+     * @param errors where the disagreements go, at most 20 of them
+     * @return true if the position was compared, false if Minimax did not solve it within MINIMAX_NODES
+     */
+    public static boolean checkSearch(PawntasticGame game, int player, List<String> errors) {
+        double minimax = new Minimax().search(game, player, new SearchLimits(0, MINIMAX_NODES, 0, 1)).score;
+        if (Double.isNaN(minimax))
+            return false;
+        TranspositionTable.shared().clear();
+        double alphaBeta = new MinimaxAlphaBeta().search(game, player, new SearchLimits(0, 0, 0, 1)).score;
+        // a node cap no search reaches takes the iterative deepening path, with its aspiration windows
+        TranspositionTable.shared().clear();
+        double deepened = new MinimaxAlphaBeta().search(game, player, new SearchLimits(0, Long.MAX_VALUE / 2, 0, 1))
+                .score;
+        if ((alphaBeta != minimax || deepened != minimax) && errors.size() < 20)
+            errors.add("Minimax " + minimax + ", alpha-beta " + alphaBeta + ", deepened " + deepened + " ("
+                    + Perft.board(game) + ", " + (player == PawntasticGame.PLAYER2 ? "W" : "B") + ")");
+        return true;
+    }
+
+    /**
+     * Compare a position, and each position one move on, with the reference
+     * @param game the position, left as it was (with the hand-written eval while it is compared)
+     * @param player the player to move
+     * @param errors where the disagreements go, at most 20 of them
+     */
+    public static void checkRules(PawntasticGame game, int player, List<String> errors) {
+        Evaluation evaluation = game.evaluation;
+        game.evaluation = null;
+        try {
+            List<String> problems = new ArrayList<>();
+            Reference reference = new Reference(game);
+            compare(game, reference, problems);
+
+            int[] moves = new int[Move.MAX_MOVES];
+            int count = game.generateMoves(player, moves);
+            List<Action> expected = reference.getAllLegalMoves(player);
+            if (count != expected.size())
+                problems.add("generateMoves has " + count + " moves, the reference " + expected.size());
+            if (game.isTerminalState(player, count) != reference.isTerminalState())
+                problems.add("isTerminalState(player, count) is " + game.isTerminalState(player, count));
+            long key = game.getHashKey();
+            for (Action action : expected) {
+                int move = game.encodeMove(action);
+                if (!contains(moves, count, move) || Move.isPromotion(move) != action.isPromotion()) {
+                    problems.add("the reference move " + game.moveToString(action) + " is not generated");
+                    continue;
+                }
+                int undo = game.makeMove(move);
+                Reference moved = new Reference(reference);
+                moved.makeMoves(action);
+                if (!moved.samePawns(game))
+                    problems.add("the pawns differ after " + game.moveToString(action));
+                compare(game, moved, problems);
+                game.unmakeMove(move, undo);
+                if (!reference.samePawns(game) || game.getHashKey() != key)
+                    problems.add("the position differs after taking back " + game.moveToString(action));
+                compare(game, reference, problems);
+            }
+            for (String problem : problems) {
+                if (errors.size() < 20)
+                    errors.add(problem + " (" + Perft.board(game) + ", "
+                            + (player == PawntasticGame.PLAYER2 ? "W" : "B") + ")");
+            }
+        } finally {
+            game.evaluation = evaluation;
+        }
+    }
+
+    private static void compare(PawntasticGame game, Reference reference, List<String> problems) {
+        if (game.isTerminalState() != reference.isTerminalState())
+            problems.add("isTerminalState is " + game.isTerminalState() + " at " + Perft.board(game));
+        for (int player : new int[] {PawntasticGame.PLAYER1, PawntasticGame.PLAYER2}) {
+            if (game.getUtility(player) != reference.getUtility(player))
+                problems.add("getUtility is " + game.getUtility(player) + " at " + Perft.board(game));
+            // the same double to the last bit, not just close
+            if (Double.doubleToLongBits(game.eval(player)) != Double.doubleToLongBits(reference.eval(player)))
+                problems.add("eval is " + game.eval(player) + ", the reference " + reference.eval(player) + " at "
+                        + Perft.board(game));
+        }
+    }
+
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+        return false;
+    }
+
+    private static void report(String what, long positions, long startNanos, List<String> errors) {
+        System.out.printf("%s on %d positions in %.1f s: %s%n", what, positions, (System.nanoTime() - startNanos) / 1e9,
+                errors.isEmpty() ? "all agree" : "DISAGREEMENTS");
+        for (String error : errors)
+            System.out.println("  " + error);
+    }
+
+    /**
+     * Run the checks, exit status 1 if anything disagrees
+     * Usage: java RegressionCheck [rules|search|all] [boardSizes, e.g. 4,5,6] [games]
+     * The default sizes are 4,5,6,8,10 for rules and 4,5,6 for search, where Minimax still solves positions,
+     * the default games 200 for rules and 20 for search
+     */
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "all";
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 0; // 0: 200 games for rules, 20 for search
+        if (!mode.equals("rules") && !mode.equals("search") && !mode.equals("all")) {
+            System.out.println("Usage: java RegressionCheck [rules|search|all] [boardSizes, e.g. 4,5,6] [games]");
+            return;
+        }
+
+        boolean agree = true;
+        if (!mode.equals("search")) {
+            for (String name : (args.length > 1 ? args[1] : "4,5,6,8,10").split(",")) {
+                int size = Integer.parseInt(name.trim());
+                List<Integer> players = new ArrayList<>();
+                List<PawntasticGame> positions = randomPositions(size, games > 0 ? games : 200, players);
+                List<String> errors = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int i = 0; i < positions.size(); i++) {
+                    checkRules(positions.get(i), players.get(i), errors);
+                }
+                report("Compared the rules and eval with the reference on " + size + "x" + size, positions.size(),
+                        start, errors);
+                agree &= errors.isEmpty();
+            }
+        }
+        if (!mode.equals("rules")) {
+            for (String name : (args.length > 1 ? args[1] : "4,5,6").split(",")) {
+                int size = Integer.parseInt(name.trim());
+                if (OpeningBook.forSize(size) != null)
+                    System.err.println("Warning: an opening book of " + size + "x" + size + " is in use");
+                List<Integer> players = new ArrayList<>();
+                List<PawntasticGame> positions = randomPositions(size, games > 0 ? games : 20, players);
+                List<String> errors = new ArrayList<>();
+                long start = System.nanoTime();
+                long compared = 0;
+                for (int i = 0; i < positions.size(); i++) {
+                    if (checkSearch(positions.get(i), players.get(i), errors))
+                        compared++;
+                }
+                report("Compared alpha-beta with Minimax on " + size + "x" + size, compared, start, errors);
+                agree &= errors.isEmpty();
+            }
+        }
+        if (!agree)
+            System.exit(1);
+    }
+}
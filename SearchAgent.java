@@ -0,0 +1,19 @@
+// SearchAgent interface of the bot players: a position and search limits in, a move and search statistics out
+// Every agent of gamePlay implements it (see Agents for them by number); the agents still add the
+// nodes they searched to the game's nodesSearched
+public interface SearchAgent {
+    /**
+     * Get the agent's name
+     * @return the name, as in Tournament's tables
+     */
+    String name();
+
+    /**
+     * Find a move
+     * @param game the game configuration, left as it was
+     * @param player the player to move, who has at least one legal move
+     * @param limits what the search may spend
+     * @return the move with its score, principal variation, nodes, depth and time
+     */
+    SearchResult search(PawntasticGame game, int player, SearchLimits limits);
+}
@@ -0,0 +1,203 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// SearchContext class that carries the state of one search through the recursion:
+// the time budget, the node count and cap, the counters (see SearchMetrics), the principal variation,
+// the move ordering tables and a move buffer per ply, so the recursion itself allocates nothing
+public class SearchContext {
+    public static final int MAX_PLY = 2 * Bitboards.MAX_SIZE * (Bitboards.MAX_SIZE - 2) + 2; // longer than any game
+    public static final int MAX_DEPTH = MAX_PLY - 2; // deepest iteration, leaves room for the leaf plies
+    private static final int TIME_CHECK_NODES = 1024; // look at the clock once every this many nodes
+
+    public long nodes; // nodes visited so far
+    public long nodeLimit = Long.MAX_VALUE; // the search stops once nodes reaches it
+    public int completedDepth; // depth of the last finished iteration, 0 if none finished
+    public boolean stopped; // set once the time budget runs out, the running iteration is then thrown away
+    public boolean reachedHorizon; // set when an iteration cut a line off at depth 0
+    public int bestMove; // best root move found so far (packed, see Move), 0 if none
+    public int bestScore; // score of the last finished iteration
+    // counters of SearchMetrics, plain fields as every thread searches with its own context
+    public long expandedNodes; // nodes whose moves were searched
+    public long movesGenerated; // the moves of those nodes
+    public long cutoffs; // expanded nodes that failed high
+    public long firstMoveCutoffs; // of them, the ones that failed high on their first move
+    public long tableProbes;
+    public long tableHits; // probes that found the position
+    public long tableCutoffs; // hits deep enough to end the node
+    public long evalCalls;
+    public final long[] iterationNanos = new long[MAX_PLY]; // time of each finished iteration, by depth
+    private long iterationStart = System.nanoTime(); // when the running iteration started
+    private final long deadline; // System.nanoTime() to stop at, 0 for no limit
+    private final AtomicBoolean abort; // raised by another thread to stop this search, may be null
+    public final MoveOrdering ordering = new MoveOrdering(); // killer moves and history of this search
+    public final int[][] moves = new int[MAX_PLY][Move.MAX_MOVES]; // generateMoves buffer of each ply
+
+    // triangular principal variation table of the running iteration
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    // principal variation of the last finished iteration, tried first by the next one
+    private final int[] previousPv = new int[MAX_PLY];
+    private int previousPvLength;
+    private boolean followPv;
+
+    /**
+     * Constructor for the context
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     */
+    public SearchContext(long timeMillis) {
+        this(timeMillis, null);
+    }
+
+    /**
+     * Constructor for a context that another thread can also stop (e.g. a parallel search helper)
+     * @param timeMillis the time budget in milliseconds, 0 for no limit
+     * @param abort the flag that stops the search once it is set
+     */
+    public SearchContext(long timeMillis, AtomicBoolean abort) {
+        deadline = timeMillis > 0 ? System.nanoTime() + timeMillis * 1_000_000L : 0L;
+        this.abort = abort;
+    }
+
+    /**
+     * Count a node and check the node cap and the clock
+     * @return true if the search has to stop
+     */
+    public boolean visitNode() {
+        nodes++;
+        if (nodes >= nodeLimit) {
+            stopped = true;
+        }
+        if ((nodes % TIME_CHECK_NODES) == 0) {
+            if ((deadline != 0 && System.nanoTime() - deadline >= 0) || (abort != null && abort.get())) {
+                stopped = true;
+            }
+        }
+        return stopped;
+    }
+
+    /**
+     * Count a node whose moves are searched
+     * @param count the number of moves
+     */
+    public void expandNode(int count) {
+        expandedNodes++;
+        movesGenerated += count;
+    }
+
+    /**
+     * Count a cutoff
+     * @param index the index of the move that failed high, 0 for the first
+     */
+    public void cutoff(int index) {
+        cutoffs++;
+        if (index == 0) {
+            firstMoveCutoffs++;
+        }
+    }
+
+    /**
+     * Check whether another iteration is likely to finish in the time budget
+     * (each iteration usually takes longer than all the previous ones together)
+     * @param startNanos System.nanoTime() when the search started
+     * @return true if there is no limit or less than half of the budget is used
+     */
+    public boolean timeForNextIteration(long startNanos) {
+        if (deadline == 0)
+            return true;
+        long now = System.nanoTime();
+        return now - startNanos < deadline - now;
+    }
+
+    /**
+     * Start a new iteration that follows the previous principal variation first
+     */
+    public void startIteration() {
+        followPv = previousPvLength > 0;
+        reachedHorizon = false;
+    }
+
+    /**
+     * Keep the principal variation of the iteration that just finished, and its time if it is the
+     * iteration of completedDepth (an iteration runs from the end of the previous one)
+     */
+    public void finishIteration() {
+        previousPvLength = pvLength[0];
+        System.arraycopy(pvTable[0], 0, previousPv, 0, previousPvLength);
+        long now = System.nanoTime();
+        if (completedDepth > 0) {
+            iterationNanos[completedDepth] = Math.max(1L, now - iterationStart);
+            SearchMetrics.iterationFinished(this, now - iterationStart);
+        }
+        iterationStart = now;
+    }
+
+    /**
+     * Mark a node as a leaf of the principal variation table
+     * @param ply the distance from the root
+     */
+    public void clearPv(int ply) {
+        pvLength[ply] = ply;
+    }
+
+    /**
+     * Record a new best move at a node, followed by the best line of its child
+     * @param ply the distance from the root
+     * @param move the new best move (packed)
+     */
+    public void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        for (int i = ply + 1; i < length; i++) {
+            pvTable[ply][i] = pvTable[ply + 1][i];
+        }
+        pvLength[ply] = length;
+    }
+
+    /**
+     * Put the previous principal variation's move first while the search is still on that line
+     * @param moves the legal moves of the node
+     * @param count the number of moves
+     * @param ply the distance from the root
+     * @return true if the first move now continues the previous principal variation
+     */
+    public boolean orderPv(int[] moves, int count, int ply) {
+        if (!followPv || ply >= previousPvLength) {
+            followPv = false;
+            return false;
+        }
+        followPv = moveToFront(moves, count, previousPv[ply]);
+        return followPv;
+    }
+
+    /**
+     * Leave the previous principal variation (called before searching a second move)
+     */
+    public void leavePv() {
+        followPv = false;
+    }
+
+    /**
+     * Get the best line of the last finished iteration
+     * @return the packed moves from the root, best first
+     */
+    public int[] getPrincipalVariation() {
+        return java.util.Arrays.copyOf(previousPv, previousPvLength);
+    }
+
+    /**
+     * Move a packed move (e.g. from the transposition table) to the front of a move list
+     * @param moves the legal moves of the node
+     * @param count the number of moves
+     * @param move the packed move
+     * @return true if the move was in the list
+     */
+    public static boolean moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+// SearchLimits class with what an agent may spend on one move (see SearchAgent)
+// Every limit is optional, 0 leaving it to the agent: a search stops at whichever limit it reaches first and
+// plays the best move of its deepest finished iteration. An agent that has no use for a limit ignores it
+// (Random all of them, Mcts the depth, Minimax and H_Minimax the threads, the exact searches of Minimax,
+// MinimaxAlphaBeta and ProofNumberSearch the depth)
+public class SearchLimits {
+    public final int depth; // the deepest iteration in plies, 0 for the agent's default
+    public final long nodes; // the most nodes (playouts for Mcts) of all threads together, 0 for no cap
+    public final long timeMillis; // the time budget in milliseconds, 0 for none (Mcts then takes its default)
+    public final int threads; // the threads to search on, the calling thread included
+
+    /**
+     * Constructor for the limits
+     * @param depth the deepest iteration, 0 for the agent's default
+     * @param nodes the most nodes, 0 for no cap
+     * @param timeMillis the time budget in milliseconds, 0 for none
+     * @param threads the threads to search on, at least 1
+     */
+    public SearchLimits(int depth, long nodes, long timeMillis, int threads) {
+        if (depth < 0 || nodes < 0 || timeMillis < 0)
+            throw new IllegalArgumentException("Negative search limit");
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Get the limits the player entered for a game: its cutOffDepth, or its moveTimeMillis instead when that
+     * is set (the search then deepens for as long as the time allows), and its searchThreads
+     * @param game the game configuration
+     * @return the limits
+     */
+    public static SearchLimits of(PawntasticGame game) {
+        return new SearchLimits(game.moveTimeMillis > 0 ? 0 : Math.max(0, game.cutOffDepth), 0,
+                game.moveTimeMillis, game.searchThreads);
+    }
+
+    /**
+     * Get the limits with another depth
+     * @param depth the deepest iteration, 0 for the agent's default
+     * @return the new limits
+     */
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, timeMillis, threads);
+    }
+
+    /**
+     * Get the node cap of one of the threads, so that all of them together stay under nodes
+     * @return the nodes of a thread, Long.MAX_VALUE for no cap
+     */
+    public long nodesPerThread() {
+        return nodes == 0 ? Long.MAX_VALUE : Math.max(1, nodes / threads);
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + (depth == 0 ? "default" : depth) + ", nodes " + (nodes == 0 ? "any" : nodes) + ", time "
+                + (timeMillis == 0 ? "any" : timeMillis + " ms") + ", threads " + threads;
+    }
+}
@@ -0,0 +1,397 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// SearchMetrics class with the counters of the searches: nodes, branching factor, cutoffs, table hits,
+// eval calls and the time of each iteration by depth
+// The searches count into their own SearchContext (plain fields, one context per thread), so counting
+// costs an increment and no synchronization. When a search ends its counters are kept in the result
+// (SearchResult.metrics), added to the totals of its board size and sent to Java Flight Recorder as a
+// pawntastic.Search event, next to a pawntastic.Iteration event for each finished iteration.
+// Record with e.g. java -XX:StartFlightRecording:filename=search.jfr PawntasticGame
+public class SearchMetrics {
+    // counters, in the order of counts
+    private static final int SEARCHES = 0;
+    private static final int NODES = 1;
+    private static final int EXPANDED_NODES = 2;
+    private static final int MOVES_GENERATED = 3;
+    private static final int CUTOFFS = 4;
+    private static final int FIRST_MOVE_CUTOFFS = 5;
+    private static final int TABLE_PROBES = 6;
+    private static final int TABLE_HITS = 7;
+    private static final int TABLE_CUTOFFS = 8;
+    private static final int EVAL_CALLS = 9;
+    private static final int ELAPSED_NANOS = 10;
+    private static final int COUNTERS = 11;
+
+    private static final Totals[] TOTALS = new Totals[Bitboards.MAX_SIZE + 1]; // by board size
+
+    static {
+        for (int n = 0; n < TOTALS.length; n++) {
+            TOTALS[n] = new Totals();
+        }
+    }
+
+    public final long searches;
+    public final long nodes; // nodes visited, quiescence nodes included
+    public final long expandedNodes; // nodes whose moves were searched
+    public final long movesGenerated; // the moves of those nodes
+    public final long cutoffs; // expanded nodes that failed high
+    public final long firstMoveCutoffs; // of them, the ones that failed high on their first move
+    public final long tableProbes;
+    public final long tableHits; // probes that found the position
+    public final long tableCutoffs; // hits deep enough to end the node
+    public final long evalCalls;
+    public final long elapsedNanos;
+    public final long[] iterations; // finished iterations, by depth
+    public final long[] iterationNanos; // their time together, by depth
+
+    /**
+     * Totals class with the counters of all searches on one board size, safe to add to from any thread
+     */
+    private static class Totals {
+        final LongAdder[] counts = new LongAdder[COUNTERS];
+        final AtomicLongArray iterations = new AtomicLongArray(SearchContext.MAX_PLY);
+        final AtomicLongArray iterationNanos = new AtomicLongArray(SearchContext.MAX_PLY);
+
+        Totals() {
+            for (int i = 0; i < COUNTERS; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * SearchEvent class: one move of an agent, sent when the search ends
+     */
+    @Name("pawntastic.Search")
+    @Label("Search")
+    @Category("Pawntastic")
+    @Description("The counters of one agent move")
+    @StackTrace(false)
+    public static class SearchEvent extends Event {
+        @Label("Agent")
+        public String agent;
+        @Label("Board Size")
+        public int boardSize;
+        @Label("Depth")
+        public int depth;
+        @Label("Score")
+        public double score;
+        @Label("Nodes")
+        public long nodes;
+        @Label("Nodes per Second")
+        public double nodesPerSecond;
+        @Label("Branching Factor")
+        public double branchingFactor;
+        @Label("Cutoff Rate")
+        @Percentage
+        public double cutoffRate;
+        @Label("First Move Cutoff Rate")
+        @Percentage
+        public double firstMoveCutoffRate;
+        @Label("Table Hit Rate")
+        @Percentage
+        public double tableHitRate;
+        @Label("Eval Calls")
+        public long evalCalls;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        public long elapsed;
+    }
+
+    /**
+     * IterationEvent class: one finished iteration of a deepening search, on the thread that ran it
+     */
+    @Name("pawntastic.Iteration")
+    @Label("Search Iteration")
+    @Category("Pawntastic")
+    @Description("A finished iteration of iterative deepening")
+    @StackTrace(false)
+    public static class IterationEvent extends Event {
+        @Label("Depth")
+        public int depth;
+        @Label("Nodes")
+        public long nodes; // of the search so far
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        public long elapsed;
+    }
+
+    /**
+     * Constructor for a snapshot
+     * @param counts the counters, in the order of the constants
+     * @param iterations the finished iterations by depth
+     * @param iterationNanos their time by depth
+     */
+    private SearchMetrics(long[] counts, long[] iterations, long[] iterationNanos) {
+        searches = counts[SEARCHES];
+        nodes = counts[NODES];
+        expandedNodes = counts[EXPANDED_NODES];
+        movesGenerated = counts[MOVES_GENERATED];
+        cutoffs = counts[CUTOFFS];
+        firstMoveCutoffs = counts[FIRST_MOVE_CUTOFFS];
+        tableProbes = counts[TABLE_PROBES];
+        tableHits = counts[TABLE_HITS];
+        tableCutoffs = counts[TABLE_CUTOFFS];
+        evalCalls = counts[EVAL_CALLS];
+        elapsedNanos = counts[ELAPSED_NANOS];
+        // up to the deepest depth that has an iteration
+        int length = iterations.length;
+        while (length > 0 && iterations[length - 1] == 0) {
+            length--;
+        }
+        this.iterations = Arrays.copyOf(iterations, length);
+        this.iterationNanos = Arrays.copyOf(iterationNanos, length);
+    }
+
+    /**
+     * Get the counters of one search
+     * @param elapsedNanos the time the search took
+     * @param contexts the contexts of its threads, the main thread's first (only its iterations are kept)
+     * @return the counters of all threads together
+     */
+    public static SearchMetrics of(long elapsedNanos, SearchContext... contexts) {
+        long[] counts = new long[COUNTERS];
+        counts[SEARCHES] = 1;
+        counts[ELAPSED_NANOS] = elapsedNanos;
+        for (SearchContext ctx : contexts) {
+            counts[NODES] += ctx.nodes;
+            counts[EXPANDED_NODES] += ctx.expandedNodes;
+            counts[MOVES_GENERATED] += ctx.movesGenerated;
+            counts[CUTOFFS] += ctx.cutoffs;
+            counts[FIRST_MOVE_CUTOFFS] += ctx.firstMoveCutoffs;
+            counts[TABLE_PROBES] += ctx.tableProbes;
+            counts[TABLE_HITS] += ctx.tableHits;
+            counts[TABLE_CUTOFFS] += ctx.tableCutoffs;
+            counts[EVAL_CALLS] += ctx.evalCalls;
+        }
+        long[] iterationNanos = contexts[0].iterationNanos;
+        long[] iterations = new long[iterationNanos.length];
+        for (int depth = 0; depth < iterations.length; depth++) {
+            iterations[depth] = iterationNanos[depth] > 0 ? 1 : 0;
+        }
+        return new SearchMetrics(counts, iterations, iterationNanos);
+    }
+
+    /**
+     * Get the counters of a search that counts nothing but its nodes (Mcts' playouts, ProofNumberSearch's nodes)
+     * @param elapsedNanos the time the search took
+     * @param nodes the nodes of all its threads together
+     * @return the counters, the others 0
+     */
+    public static SearchMetrics ofNodes(long elapsedNanos, long nodes) {
+        long[] counts = new long[COUNTERS];
+        counts[SEARCHES] = 1;
+        counts[NODES] = nodes;
+        counts[ELAPSED_NANOS] = elapsedNanos;
+        return new SearchMetrics(counts, new long[0], new long[0]);
+    }
+
+    /**
+     * Add a search to the totals of its board size and send its pawntastic.Search event
+     * @param agent the name of the agent
+     * @param game the game configuration, for its board size
+     * @param result the result of the search, with its metrics
+     * @return the result
+     */
+    public static SearchResult record(String agent, PawntasticGame game, SearchResult result) {
+        SearchMetrics metrics = result.metrics;
+        Totals totals = TOTALS[game.boardSize];
+        long[] counts = metrics.counts();
+        for (int i = 0; i < COUNTERS; i++) {
+            if (counts[i] != 0) {
+                totals.counts[i].add(counts[i]);
+            }
+        }
+        for (int depth = 0; depth < metrics.iterations.length; depth++) {
+            if (metrics.iterations[depth] != 0) {
+                totals.iterations.addAndGet(depth, metrics.iterations[depth]);
+                totals.iterationNanos.addAndGet(depth, metrics.iterationNanos[depth]);
+            }
+        }
+
+        SearchEvent event = new SearchEvent();
+        if (event.shouldCommit()) {
+            event.agent = agent;
+            event.boardSize = game.boardSize;
+            event.depth = result.depth;
+            event.score = result.score;
+            event.nodes = metrics.nodes;
+            event.nodesPerSecond = metrics.nodesPerSecond();
+            event.branchingFactor = metrics.branchingFactor();
+            event.cutoffRate = metrics.cutoffRate();
+            event.firstMoveCutoffRate = metrics.firstMoveCutoffRate();
+            event.tableHitRate = metrics.tableHitRate();
+            event.evalCalls = metrics.evalCalls;
+            event.elapsed = metrics.elapsedNanos;
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Send the pawntastic.Iteration event of an iteration that just finished
+     * @param ctx the search context, with the iteration's depth
+     * @param elapsedNanos the time the iteration took
+     */
+    static void iterationFinished(SearchContext ctx, long elapsedNanos) {
+        IterationEvent event = new IterationEvent();
+        if (event.shouldCommit()) {
+            event.depth = ctx.completedDepth;
+            event.nodes = ctx.nodes;
+            event.elapsed = elapsedNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Get the totals of the searches on a board size since the start (or the last reset)
+     * @param boardSize the board size
+     * @return the counters of all those searches together
+     */
+    public static SearchMetrics snapshot(int boardSize) {
+        Totals totals = TOTALS[boardSize];
+        long[] counts = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            counts[i] = totals.counts[i].sum();
+        }
+        long[] iterations = new long[SearchContext.MAX_PLY];
+        long[] iterationNanos = new long[SearchContext.MAX_PLY];
+        for (int depth = 0; depth < iterations.length; depth++) {
+            iterations[depth] = totals.iterations.get(depth);
+            iterationNanos[depth] = totals.iterationNanos.get(depth);
+        }
+        return new SearchMetrics(counts, iterations, iterationNanos);
+    }
+
+    /**
+     * Get the totals of the searches on every board size since the start (or the last reset)
+     * @return the counters of all searches together
+     */
+    public static SearchMetrics snapshot() {
+        long[] counts = new long[COUNTERS];
+        long[] iterations = new long[SearchContext.MAX_PLY];
+        long[] iterationNanos = new long[SearchContext.MAX_PLY];
+        for (int n = 0; n < TOTALS.length; n++) {
+            SearchMetrics size = snapshot(n);
+            long[] sizeCounts = size.counts();
+            for (int i = 0; i < COUNTERS; i++) {
+                counts[i] += sizeCounts[i];
+            }
+            for (int depth = 0; depth < size.iterations.length; depth++) {
+                iterations[depth] += size.iterations[depth];
+                iterationNanos[depth] += size.iterationNanos[depth];
+            }
+        }
+        return new SearchMetrics(counts, iterations, iterationNanos);
+    }
+
+    /**
+     * Clear the totals of every board size (searches running meanwhile may be counted partly)
+     */
+    public static void reset() {
+        for (Totals totals : TOTALS) {
+            for (LongAdder count : totals.counts) {
+                count.reset();
+            }
+            for (int depth = 0; depth < SearchContext.MAX_PLY; depth++) {
+                totals.iterations.set(depth, 0);
+                totals.iterationNanos.set(depth, 0);
+            }
+        }
+    }
+
+    private long[] counts() {
+        long[] counts = new long[COUNTERS];
+        counts[SEARCHES] = searches;
+        counts[NODES] = nodes;
+        counts[EXPANDED_NODES] = expandedNodes;
+        counts[MOVES_GENERATED] = movesGenerated;
+        counts[CUTOFFS] = cutoffs;
+        counts[FIRST_MOVE_CUTOFFS] = firstMoveCutoffs;
+        counts[TABLE_PROBES] = tableProbes;
+        counts[TABLE_HITS] = tableHits;
+        counts[TABLE_CUTOFFS] = tableCutoffs;
+        counts[EVAL_CALLS] = evalCalls;
+        counts[ELAPSED_NANOS] = elapsedNanos;
+        return counts;
+    }
+
+    private static double ratio(long count, long total) {
+        return total == 0 ? 0.0 : (double) count / total;
+    }
+
+    public double nodesPerSecond() {
+        return nodes * 1e9 / Math.max(1L, elapsedNanos);
+    }
+
+    /**
+     * Get the branching factor
+     * @return the moves searched per expanded node, mirror moves of symmetric positions left out
+     */
+    public double branchingFactor() {
+        return ratio(movesGenerated, expandedNodes);
+    }
+
+    /**
+     * Get the cutoff rate
+     * @return the share of the expanded nodes that failed high
+     */
+    public double cutoffRate() {
+        return ratio(cutoffs, expandedNodes);
+    }
+
+    /**
+     * Get the first move cutoff rate, how good the move ordering is
+     * @return the share of the cutoffs that came from the first move
+     */
+    public double firstMoveCutoffRate() {
+        return ratio(firstMoveCutoffs, cutoffs);
+    }
+
+    /**
+     * Get the table hit rate
+     * @return the share of the table probes that found the position
+     */
+    public double tableHitRate() {
+        return ratio(tableHits, tableProbes);
+    }
+
+    /**
+     * Get the mean time of an iteration
+     * @param depth the depth of the iteration
+     * @return the mean time in milliseconds, 0 if no iteration of that depth finished
+     */
+    public double iterationMillis(int depth) {
+        if (depth >= iterations.length || iterations[depth] == 0)
+            return 0.0;
+        return iterationNanos[depth] / 1e6 / iterations[depth];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d searches, %d nodes in %.1f ms (%.0f nodes/s), %d eval calls%n", searches,
+                nodes, elapsedNanos / 1e6, nodesPerSecond(), evalCalls));
+        report.append(String.format("branching factor %.2f, cutoffs %.1f%% (%.1f%% on the first move), "
+                + "table hits %.1f%% (%d cutoffs)", branchingFactor(), 100 * cutoffRate(),
+                100 * firstMoveCutoffRate(), 100 * tableHitRate(), tableCutoffs));
+        for (int depth = 1; depth < iterations.length; depth++) {
+            if (iterations[depth] != 0) {
+                report.append(String.format("%n  depth %2d: %6d iterations, %10.2f ms each", depth,
+                        iterations[depth], iterationMillis(depth)));
+            }
+        }
+        return report.toString();
+    }
+}
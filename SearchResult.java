@@ -0,0 +1,75 @@
+// SearchResult class with an agent's move and what it did to find it (see SearchAgent)
+public class SearchResult {
+    public final Action move;
+    public final double score; // for the player to move: 1 a win, -1 a loss, in between a heuristic; NaN if none
+    public final int[] principalVariation; // the expected line, packed moves (see Move) from the move on
+    public final long nodes; // nodes (playouts for Mcts) of all threads together
+    public final int depth; // plies of the deepest finished iteration, 0 for a move that was not searched
+    public final long elapsedNanos;
+    public final SearchMetrics metrics; // the search's counters, null for an agent that keeps none
+
+    /**
+     * Constructor for a result
+     * @param move the move to play
+     * @param score the score for the player to move, NaN if the agent does not score its moves
+     * @param principalVariation the expected line, starting with the move
+     * @param nodes the nodes searched
+     * @param depth the depth reached
+     * @param elapsedNanos the time the search took
+     */
+    public SearchResult(Action move, double score, int[] principalVariation, long nodes, int depth,
+            long elapsedNanos) {
+        this(move, score, principalVariation, nodes, depth, elapsedNanos, null);
+    }
+
+    /**
+     * Constructor for the result of a search that counts (see SearchMetrics)
+     * @param move the move to play
+     * @param score the score for the player to move, NaN if the agent does not score its moves
+     * @param principalVariation the expected line, starting with the move
+     * @param nodes the nodes searched
+     * @param depth the depth reached
+     * @param elapsedNanos the time the search took
+     * @param metrics the counters of the search
+     */
+    public SearchResult(Action move, double score, int[] principalVariation, long nodes, int depth,
+            long elapsedNanos, SearchMetrics metrics) {
+        this.move = move;
+        this.score = score;
+        this.principalVariation = principalVariation;
+        this.nodes = nodes;
+        this.depth = depth;
+        this.elapsedNanos = elapsedNanos;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get a result for a move that was not searched (a random, book or tablebase move)
+     * @param game the game configuration
+     * @param move the packed move
+     * @param score the score for the player to move, NaN if it is not known
+     * @param startNanos System.nanoTime() when the agent started
+     * @return the result
+     */
+    public static SearchResult unsearched(PawntasticGame game, int move, double score, long startNanos) {
+        return new SearchResult(game.toAction(move), score, new int[] {move}, 0, 0, System.nanoTime() - startNanos);
+    }
+
+    public double nodesPerSecond() {
+        return nodes * 1e9 / Math.max(1L, elapsedNanos);
+    }
+
+    /**
+     * Write the search statistics with the principal variation the way the player enters moves
+     * @param game the game configuration, for its board size
+     * @return e.g. "depth 5, score 0.12, 12345 nodes in 20.1 ms, line A 2 A 3, B 7 B 6"
+     */
+    public String describe(PawntasticGame game) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < principalVariation.length; i++) {
+            line.append(i == 0 ? "" : ", ").append(game.moveToString(game.toAction(principalVariation[i])));
+        }
+        return String.format("depth %d, score %s, %d nodes in %.1f ms, line %s", depth,
+                Double.isNaN(score) ? "-" : String.format("%.2f", score), nodes, elapsedNanos / 1e6, line);
+    }
+}
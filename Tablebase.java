@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Tablebase class with the exact result of every position up to a number of pawns (see TablebaseBuilder)
+// Before the game is won every pawn stands on one of the n*(n-2) middle cells, so a position is the
+// black pawns as a combination of those cells and the white pawns as a combination of the cells left
+// over, ranked in colex order. Each (black, white) pawn count has its own region of the file with two
+// bytes per position, one per side to move, read through a MappedByteBuffer so a probe copies nothing
+// A value is the distance to the end of the game in plies: d > 0 the side to move wins in d plies,
+// d < 0 it loses in -d plies, 0 a draw
+public class Tablebase {
+    public static final int UNKNOWN = Byte.MIN_VALUE; // the position is not in the tablebase
+    static final int MAGIC = 0x50544231; // "PTB1"
+    static final int HEADER_BYTES = 16; // magic, board size, max pawns, reserved
+    private static final int MAX_CELLS = Bitboards.MAX_SIZE * (Bitboards.MAX_SIZE - 2);
+    private static final long[][] CHOOSE = new long[MAX_CELLS + 1][Bitboards.MAX_SIZE + 1];
+    private static final Tablebase NONE = new Tablebase(0, 0, null); // no file for the board size
+    private static final AtomicReferenceArray<Tablebase> REGISTRY =
+            new AtomicReferenceArray<>(Bitboards.MAX_SIZE + 1);
+
+    static {
+        for (int n = 0; n <= MAX_CELLS; n++) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, Bitboards.MAX_SIZE); k++) {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + (k <= n - 1 ? CHOOSE[n - 1][k] : 0);
+            }
+        }
+    }
+
+    public final int boardSize;
+    public final int maxPawns; // positions with at most this many pawns in all are covered
+    private final MappedByteBuffer[] regions; // by black * (boardSize + 1) + white
+
+    private Tablebase(int boardSize, int maxPawns, MappedByteBuffer[] regions) {
+        this.boardSize = boardSize;
+        this.maxPawns = maxPawns;
+        this.regions = regions;
+    }
+
+    /**
+     * Open a tablebase file written by TablebaseBuilder
+     * @param file the file
+     * @return the tablebase, mapped into memory
+     * @throws IOException if the file cannot be read or is not a tablebase
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+                throw new IOException("Not a tablebase file: " + file);
+            int size = header.getInt();
+            int pawns = header.getInt();
+            if (size < Bitboards.MIN_SIZE || size > Bitboards.MAX_SIZE)
+                throw new IOException("Invalid board size " + size + " in " + file);
+
+            MappedByteBuffer[] regions = new MappedByteBuffer[(size + 1) * (size + 1)];
+            long offset = HEADER_BYTES;
+            for (int black = 0; black <= size; black++) {
+                for (int white = 0; white <= size; white++) {
+                    if (!covers(size, pawns, black, white))
+                        continue;
+                    long bytes = regionBytes(size, black, white);
+                    if (offset + bytes > channel.size())
+                        throw new IOException("Truncated tablebase file: " + file);
+                    regions[black * (size + 1) + white] = channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes);
+                    offset += bytes;
+                }
+            }
+            return new Tablebase(size, pawns, regions);
+        }
+    }
+
+    /**
+     * Get the tablebase of a board size, loading the file tablebase-<size>.bin from the working
+     * directory on first use unless one was registered
+     * @param size the board size
+     * @return the tablebase, null if there is none for the size
+     */
+    public static Tablebase forSize(int size) {
+        if (size < 0 || size > Bitboards.MAX_SIZE)
+            return null;
+        Tablebase tablebase = REGISTRY.get(size);
+        if (tablebase == null) {
+            tablebase = NONE;
+            Path file = Paths.get(defaultFileName(size));
+            if (Files.isReadable(file)) {
+                try {
+                    tablebase = open(file);
+                } catch (IOException e) {
+                    System.err.println("Ignoring tablebase " + file + ": " + e.getMessage());
+                }
+            }
+            if (!REGISTRY.compareAndSet(size, null, tablebase))
+                tablebase = REGISTRY.get(size);
+        }
+        return tablebase == NONE ? null : tablebase;
+    }
+
+    /**
+     * Use a tablebase for its board size from now on
+     * @param tablebase the tablebase, replaces the one loaded for the size before
+     */
+    public static void register(Tablebase tablebase) {
+        REGISTRY.set(tablebase.boardSize, tablebase);
+    }
+
+    /**
+     * Get the name of the file forSize looks for
+     * @param size the board size
+     * @return the file name
+     */
+    public static String defaultFileName(int size) {
+        return "tablebase-" + size + ".bin";
+    }
+
+    /**
+     * Look a position up in the tablebase of its board size
+     * @param game the game configuration
+     * @param player the player to move
+     * @return the value of the position (see Tablebase), UNKNOWN if it is not covered
+     */
+    public static int probeAny(PawntasticGame game, int player) {
+        Tablebase tablebase = forSize(game.boardSize);
+        return tablebase == null ? UNKNOWN : tablebase.probe(game, player);
+    }
+
+    /**
+     * Look a position up
+     * @param game the game configuration, of this tablebase's board size
+     * @param player the player to move
+     * @return the value of the position (see Tablebase), UNKNOWN if it is not covered
+     */
+    public int probe(PawntasticGame game, int player) {
+        int black = pawnCount(game, PawntasticGame.PLAYER1);
+        int white = pawnCount(game, PawntasticGame.PLAYER2);
+        if (black + white > maxPawns || !onMiddleRows(game))
+            return UNKNOWN;
+        long index = index(game);
+        return regions[black * (boardSize + 1) + white].get((int) (index * 2 + side(player)));
+    }
+
+    /**
+     * Find the best move of a covered position: the fastest win, else a draw, else the slowest loss
+     * @param game the game configuration
+     * @param player the player to move
+     * @return the best move (packed, see Move), 0 if the position is not covered or has no moves
+     */
+    public static int bestMove(PawntasticGame game, int player) {
+        Tablebase tablebase = forSize(game.boardSize);
+        if (tablebase == null || tablebase.probe(game, player) == UNKNOWN)
+            return 0;
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = game.generateMoves(player, moves);
+        int best = 0;
+        int bestValue = UNKNOWN;
+        for (int i = 0; i < count; i++) {
+            int value;
+            if (Move.isPromotion(moves[i])) {
+                value = 1;
+            } else {
+                int undo = game.makeMove(moves[i]);
+                value = parentValue(tablebase.probe(game, -player));
+                game.unmakeMove(moves[i], undo);
+            }
+            if (bestValue == UNKNOWN || better(value, bestValue)) {
+                best = moves[i];
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Turn the value of a position into the value of its parent, one ply earlier and for the other side
+     * @param child the value of the position after the move
+     * @return the value of the move for the player who made it
+     */
+    static int parentValue(int child) {
+        if (child > 0)
+            return -(child + 1);
+        if (child < 0)
+            return -child + 1;
+        return 0;
+    }
+
+    /**
+     * Compare two values for the side to move
+     * @param a a value
+     * @param b another value
+     * @return true if a is strictly better than b: a faster win, a draw over a loss, a slower loss
+     */
+    static boolean better(int a, int b) {
+        return rank(a) > rank(b);
+    }
+
+    private static int rank(int value) {
+        if (value > 0)
+            return 1000 - value;
+        if (value < 0)
+            return -1000 - value;
+        return 0;
+    }
+
+    /**
+     * Check whether a pawn count is in a tablebase
+     * @param size the board size
+     * @param maxPawns the most pawns the tablebase covers
+     * @param black the black pawns
+     * @param white the white pawns
+     * @return true if the positions with those pawns are covered
+     */
+    static boolean covers(int size, int maxPawns, int black, int white) {
+        return black <= size && white <= size && black + white <= maxPawns;
+    }
+
+    /**
+     * Get the number of positions with a pawn count
+     * @param size the board size
+     * @param black the black pawns
+     * @param white the white pawns
+     * @return the positions, each takes two bytes (one per side to move), capped at Long.MAX_VALUE / 2
+     */
+    static long positions(int size, int black, int white) {
+        int cells = size * (size - 2);
+        if (black + white > cells)
+            return 0;
+        long blacks = CHOOSE[cells][black];
+        long whites = CHOOSE[cells - black][white];
+        // large boards overflow a long, the builder turns those counts down anyway
+        return blacks > Long.MAX_VALUE / 2 / whites ? Long.MAX_VALUE / 2 : blacks * whites;
+    }
+
+    /**
+     * Get the size of a pawn count's region of the file
+     * @param size the board size
+     * @param black the black pawns
+     * @param white the white pawns
+     * @return the bytes of the region
+     */
+    static long regionBytes(int size, int black, int white) {
+        return positions(size, black, white) * 2;
+    }
+
+    /**
+     * Get the index of a position within the region of its pawn count
+     * @param game the game configuration, every pawn on the middle rows
+     * @return the index, between 0 and positions - 1
+     */
+    static long index(PawntasticGame game) {
+        int n = game.boardSize;
+        long blackLo = game.getPawnsLo(PawntasticGame.PLAYER1);
+        long blackHi = game.getPawnsHi(PawntasticGame.PLAYER1);
+        long blackRank = 0;
+        int black = 0;
+        for (int word = 0; word < 2; word++) {
+            for (long pawns = (word == 0) ? blackLo : blackHi; pawns != 0; pawns &= pawns - 1) {
+                int square = word * 64 + Long.numberOfTrailingZeros(pawns);
+                blackRank += CHOOSE[square - n][++black];
+            }
+        }
+        long whiteRank = 0;
+        int white = 0;
+        for (int word = 0; word < 2; word++) {
+            long pawns = (word == 0) ? game.getPawnsLo(PawntasticGame.PLAYER2) : game.getPawnsHi(PawntasticGame.PLAYER2);
+            for (; pawns != 0; pawns &= pawns - 1) {
+                int square = word * 64 + Long.numberOfTrailingZeros(pawns);
+                // the white pawns are ranked among the cells the black pawns leave free
+                int below = square < 64 ? Long.bitCount(blackLo & ((1L << square) - 1))
+                        : Long.bitCount(blackLo) + Long.bitCount(blackHi & ((1L << (square - 64)) - 1));
+                whiteRank += CHOOSE[square - n - below][++white];
+            }
+        }
+        return blackRank * CHOOSE[n * (n - 2) - black][white] + whiteRank;
+    }
+
+    /**
+     * Set a game to the position with an index, the reverse of index
+     * @param game the game configuration, its pawns are replaced
+     * @param black the black pawns
+     * @param white the white pawns
+     * @param index the index within the region of the pawn count
+     */
+    static void setPosition(PawntasticGame game, int black, int white, long index) {
+        int n = game.boardSize;
+        int cells = n * (n - 2);
+        for (int square = 0; square < n * n; square++) {
+            game.setPiece(square / n, square % n, 0);
+        }
+        long whites = CHOOSE[cells - black][white];
+        long rank = index / whites;
+        for (int k = black, cell = cells - 1; k > 0; k--) {
+            while (CHOOSE[cell][k] > rank)
+                cell--;
+            rank -= CHOOSE[cell][k];
+            game.setPiece((cell + n) / n, (cell + n) % n, PawntasticGame.PLAYER1);
+        }
+        rank = index % whites;
+        for (int k = white, free = cells - black - 1; k > 0; k--) {
+            while (CHOOSE[free][k] > rank)
+                free--;
+            rank -= CHOOSE[free][k];
+            // the free-th middle cell without a black pawn
+            int square = n - 1;
+            for (int left = free; left >= 0; left--) {
+                do {
+                    square++;
+                } while (game.getPiece(square / n, square % n) == PawntasticGame.PLAYER1);
+            }
+            game.setPiece(square / n, square % n, PawntasticGame.PLAYER2);
+        }
+    }
+
+    /**
+     * Get the number of pawns of a player
+     * @param game the game configuration
+     * @param player the player
+     * @return the pawns on the board
+     */
+    static int pawnCount(PawntasticGame game, int player) {
+        return Long.bitCount(game.getPawnsLo(player)) + Long.bitCount(game.getPawnsHi(player));
+    }
+
+    /**
+     * Get the byte of a side to move within a position's two
+     * @param player the player to move
+     * @return 0 for PLAYER1, 1 for PLAYER2
+     */
+    static int side(int player) {
+        return player == PawntasticGame.PLAYER1 ? 0 : 1;
+    }
+
+    // no pawn has reached the first or the last row
+    private static boolean onMiddleRows(PawntasticGame game) {
+        int n = game.boardSize;
+        long lo = game.getPawnsLo(PawntasticGame.PLAYER1) | game.getPawnsLo(PawntasticGame.PLAYER2);
+        long hi = game.getPawnsHi(PawntasticGame.PLAYER1) | game.getPawnsHi(PawntasticGame.PLAYER2);
+        return ((lo & (Bitboards.ROW_LO[n][0] | Bitboards.ROW_LO[n][n - 1]))
+                | (hi & (Bitboards.ROW_HI[n][0] | Bitboards.ROW_HI[n][n - 1]))) == 0;
+    }
+}
@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+// TablebaseBuilder class that solves every position up to a number of pawns and writes a Tablebase file
+// Pawns never move backwards, so the positions form a graph without cycles: every move advances a
+// pawn and every capture drops to a smaller pawn count. That is why this is not a retrograde analysis
+// that un-moves from the finished games and counts down each position's unresolved successors: without
+// cycles, a memoized depth-first search forward from each position over its successors reaches the
+// same exact values, distances included, in one pass, with no unmove generator and no counters per
+// position. The pawn counts go smallest first, so a successor after a capture is already known, and
+// the successors with the same pawns are solved on the way
+// The (black, white) pawn counts with the same total only lead into each other through smaller totals,
+// so each total is one parallel step: its regions are cut into slices of positions that run as tasks on
+// a ForkJoinPool and share the region's values. A value is published by setting its bit in a lock-free
+// bitset of solved positions, so two threads that reach the same position at worst both solve it.
+// Every finished region is saved as a checkpoint, and a build that was interrupted picks up from there
+public class TablebaseBuilder {
+    private static final int SLICE = 1 << 14; // positions per task
+
+    public final int boardSize;
+    public final int maxPawns;
+    private final byte[][] values; // by black * (boardSize + 1) + white, then index * 2 + side
+    private final AtomicLongArray[] solved; // a bit per value of the regions being solved, null when finished
+    private Path checkpoints; // directory of the finished regions, null to keep none
+
+    /**
+     * Constructor for the builder
+     * @param boardSize the board size
+     * @param maxPawns the most pawns (both sides together) of a covered position
+     */
+    public TablebaseBuilder(int boardSize, int maxPawns) {
+        if (boardSize < Bitboards.MIN_SIZE || boardSize > Bitboards.MAX_SIZE)
+            throw new IllegalArgumentException("Invalid board size: " + boardSize);
+        // a game with p pawns lasts at most p * (boardSize - 2) plies, which has to fit in a byte
+        if (maxPawns < 0 || maxPawns > 2 * boardSize || maxPawns * (boardSize - 2) >= Byte.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid pawn count for a " + boardSize + "x" + boardSize
+                    + " tablebase: " + maxPawns);
+        this.boardSize = boardSize;
+        this.maxPawns = maxPawns;
+        values = new byte[(boardSize + 1) * (boardSize + 1)][];
+        solved = new AtomicLongArray[values.length];
+        for (int black = 0; black <= boardSize; black++) {
+            for (int white = 0; white <= boardSize; white++) {
+                if (!Tablebase.covers(boardSize, maxPawns, black, white))
+                    continue;
+                long bytes = Tablebase.regionBytes(boardSize, black, white);
+                if (bytes > Integer.MAX_VALUE - 8)
+                    throw new IllegalArgumentException("Too many positions with " + black + " black and "
+                            + white + " white pawns: " + bytes / 2);
+                values[black * (boardSize + 1) + white] = new byte[(int) bytes];
+            }
+        }
+    }
+
+    /**
+     * Save every finished region in a directory, and take the regions already saved there as solved
+     * @param directory the checkpoint directory, created if needed, null to keep no checkpoints
+     */
+    public void setCheckpointDirectory(Path directory) {
+        checkpoints = directory;
+    }
+
+    /**
+     * Solve every covered position
+     * @param threads the number of threads to solve on
+     * @throws IOException if a checkpoint cannot be read or written
+     */
+    public void build(int threads) throws IOException {
+        if (checkpoints != null)
+            Files.createDirectories(checkpoints);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            for (int pawns = 0; pawns <= maxPawns; pawns++) {
+                long start = System.nanoTime();
+                long positions = 0;
+                List<Callable<Void>> tasks = new ArrayList<>();
+                List<Integer> started = new ArrayList<>();
+                for (int black = 0; black <= Math.min(pawns, boardSize); black++) {
+                    int white = pawns - black;
+                    if (white > boardSize || loadCheckpoint(black, white))
+                        continue;
+                    int region = black * (boardSize + 1) + white;
+                    long count = Tablebase.positions(boardSize, black, white);
+                    solved[region] = new AtomicLongArray((int) ((count * 2 + 63) / 64));
+                    started.add(region);
+                    positions += count;
+                    for (long from = 0; from < count; from += SLICE) {
+                        int b = black;
+                        int w = white;
+                        long sliceFrom = from;
+                        long sliceTo = Math.min(count, from + SLICE);
+                        tasks.add(() -> {
+                            new Solver().solveSlice(b, w, sliceFrom, sliceTo);
+                            return null;
+                        });
+                    }
+                }
+                if (tasks.isEmpty())
+                    continue;
+
+                for (Future<Void> task : pool.invokeAll(tasks)) {
+                    try {
+                        task.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Tablebase build interrupted", e);
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("Tablebase slice failed", e.getCause());
+                    }
+                }
+                for (int region : started) {
+                    solved[region] = null;
+                    saveCheckpoint(region / (boardSize + 1), region % (boardSize + 1));
+                }
+                System.out.printf("%2d pawns: %,d positions in %.1f s%n", pawns, positions,
+                        (System.nanoTime() - start) / 1e9);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // the value bytes of a finished region, as the checkpoint file of its pawn count
+    private Path checkpointFile(int black, int white) {
+        return checkpoints.resolve("region-" + black + "-" + white + ".bin");
+    }
+
+    /**
+     * Read a region from its checkpoint
+     * @param black the black pawns
+     * @param white the white pawns
+     * @return true if the region was saved by an earlier build and is solved now
+     * @throws IOException if the checkpoint cannot be read
+     */
+    private boolean loadCheckpoint(int black, int white) throws IOException {
+        if (checkpoints == null)
+            return false;
+        Path file = checkpointFile(black, white);
+        byte[] region = values[black * (boardSize + 1) + white];
+        if (!Files.isRegularFile(file) || Files.size(file) != region.length)
+            return false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(region);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Save a finished region, through a temporary file so a checkpoint is never half written
+     * @param black the black pawns
+     * @param white the white pawns
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void saveCheckpoint(int black, int white) throws IOException {
+        if (checkpoints == null)
+            return;
+        Path file = checkpointFile(black, white);
+        Path temporary = checkpoints.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.wrap(values[black * (boardSize + 1) + white]));
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Delete the checkpoints, once the tablebase file is written
+     * @throws IOException if a checkpoint cannot be deleted
+     */
+    public void deleteCheckpoints() throws IOException {
+        if (checkpoints == null || !Files.isDirectory(checkpoints))
+            return;
+        for (int black = 0; black <= boardSize; black++) {
+            for (int white = 0; white <= boardSize; white++) {
+                Files.deleteIfExists(checkpointFile(black, white));
+            }
+        }
+        try (Stream<Path> left = Files.list(checkpoints)) {
+            if (left.findAny().isPresent())
+                return;
+        }
+        Files.delete(checkpoints);
+    }
+
+    /**
+     * Solver class with the game and move buffers of one task
+     */
+    private class Solver {
+        private final PawntasticGame game = new PawntasticGame(boardSize);
+        private final int[][] moves = new int[maxPawns * (boardSize - 2) + 2][Move.MAX_MOVES];
+
+        /**
+         * Solve the positions of a slice of a region, both sides to move
+         * @param black the black pawns
+         * @param white the white pawns
+         * @param from the first index of the slice
+         * @param to the index after the slice
+         */
+        void solveSlice(int black, int white, long from, long to) {
+            int region = black * (boardSize + 1) + white;
+            for (long index = from; index < to; index++) {
+                for (int side = 0; side < 2; side++) {
+                    if (!isSolved(region, (int) (index * 2 + side))) {
+                        Tablebase.setPosition(game, black, white, index);
+                        solve(side == 0 ? PawntasticGame.PLAYER1 : PawntasticGame.PLAYER2, 0);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Solve the position of the task's game, and every unsolved one it leads to
+         * @param player the player to move
+         * @param ply the distance from the position the slice started at, selects the move buffer
+         * @return the value of the position (see Tablebase)
+         */
+        private int solve(int player, int ply) {
+            int region = Tablebase.pawnCount(game, PawntasticGame.PLAYER1) * (boardSize + 1)
+                    + Tablebase.pawnCount(game, PawntasticGame.PLAYER2);
+            int slot = (int) (Tablebase.index(game) * 2 + Tablebase.side(player));
+            if (isSolved(region, slot))
+                return values[region][slot];
+
+            int[] buffer = moves[ply];
+            int count = game.generateMoves(player, buffer);
+            int best = 0; // no pawn is on its last row yet, so a finished game is a draw
+            if (!game.isTerminalState(player, count)) {
+                best = Tablebase.UNKNOWN;
+                for (int i = 0; i < count && best != 1; i++) {
+                    int move = buffer[i];
+                    int value;
+                    if (Move.isPromotion(move)) {
+                        value = 1;
+                    } else {
+                        int undo = game.makeMove(move);
+                        value = Tablebase.parentValue(solve(-player, ply + 1));
+                        game.unmakeMove(move, undo);
+                    }
+                    if (best == Tablebase.UNKNOWN || Tablebase.better(value, best))
+                        best = value;
+                }
+            }
+            values[region][slot] = (byte) best;
+            // the value is written before its bit is set, so whoever sees the bit sees the value
+            solved[region].getAndAccumulate(slot >>> 6, 1L << slot, (bits, bit) -> bits | bit);
+            return best;
+        }
+    }
+
+    // a region without a bitset is finished
+    private boolean isSolved(int region, int slot) {
+        AtomicLongArray bits = solved[region];
+        return bits == null || (bits.get(slot >>> 6) & (1L << slot)) != 0;
+    }
+
+    /**
+     * Write the solved tablebase
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES);
+            header.putInt(Tablebase.MAGIC).putInt(boardSize).putInt(maxPawns).putInt(0).flip();
+            writeFully(channel, header);
+            for (int black = 0; black <= boardSize; black++) {
+                for (int white = 0; white <= boardSize; white++) {
+                    if (Tablebase.covers(boardSize, maxPawns, black, white))
+                        writeFully(channel, ByteBuffer.wrap(values[black * (boardSize + 1) + white]));
+                }
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Build a tablebase file
+     * Usage: java TablebaseBuilder boardSize maxPawns [file] [threads]
+     * An interrupted build resumes from the checkpoints in the directory file.regions
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java TablebaseBuilder boardSize maxPawns [file] [threads]");
+            return;
+        }
+        int size = Integer.parseInt(args[0]);
+        int pawns = Integer.parseInt(args[1]);
+        Path file = Paths.get(args.length > 2 ? args[2] : Tablebase.defaultFileName(size));
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        TablebaseBuilder builder = new TablebaseBuilder(size, pawns);
+        builder.setCheckpointDirectory(Paths.get(file + ".regions"));
+        builder.build(threads);
+        builder.write(file);
+        builder.deleteCheckpoints();
+        System.out.printf("Solved %dx%d up to %d pawns on %d threads in %.1f s, wrote %s%n", size, size, pawns,
+                threads, (System.nanoTime() - start) / 1e9, file);
+    }
+}
@@ -0,0 +1,292 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Tournament class that plays the agents (see Agents) against each other without anyone at the keyboard
+// Every pair of agents plays a number of games from the starting position, each agent taking WHITE
+// (who moves first) in half of them. With opening plies, each two games of a pair start instead from
+// the same seeded random opening, the agents swapping colors, so deterministic agents do not replay one
+// game over and over and neither side keeps the better of an opening. The games run in parallel on a
+// thread pool, one game per thread, and the table at the end has each agent's score, an Elo rating
+// fitted to all the results, its average time per move and the nodes it searched per move
+public class Tournament {
+    public static final long DEFAULT_SEED = 1;
+
+    private static final double ELO_MEAN = 1500;
+
+    /**
+     * Standing class with one agent's results
+     */
+    public static class Standing {
+        public final int agent;
+        public int games;
+        public int wins;
+        public int draws;
+        public int losses;
+        public int moves;
+        public long moveNanos; // time spent on all its moves
+        public long nodes; // nodes searched for all its moves
+        public double elo = ELO_MEAN;
+
+        public Standing(int agent) {
+            this.agent = agent;
+        }
+
+        public double score() {
+            return games == 0 ? 0 : (wins + 0.5 * draws) / games;
+        }
+    }
+
+    /**
+     * Game class with the outcome of one game
+     */
+    private static class Game {
+        int white; // the agents
+        int black;
+        int winner; // PLAYER1, PLAYER2 or 0
+        int[] moves = new int[2]; // white's then black's
+        long[] moveNanos = new long[2];
+        long[] nodes = new long[2];
+    }
+
+    /**
+     * Play one game between two agents
+     * @param size the board size
+     * @param white the agent playing WHITE
+     * @param black the agent playing BLACK
+     * @param depth the cutoff depth of the H-minimax agents
+     * @param timeMillis the time budget per move, 0 for none (Mcts then takes its default)
+     * @param opening the moves played before the agents take over, packed (see Move)
+     * @return the outcome
+     */
+    private static Game playGame(int size, int white, int black, int depth, long timeMillis, int[] opening) {
+        PawntasticGame game = new PawntasticGame(size);
+        game.cutOffDepth = depth;
+        game.moveTimeMillis = timeMillis;
+        Game result = new Game();
+        result.white = white;
+        result.black = black;
+        int player = PawntasticGame.PLAYER2;
+        for (int move : opening) {
+            game.makeMove(move);
+            player = -player;
+        }
+        while (!game.isTerminalState()) {
+            int side = player == PawntasticGame.PLAYER2 ? 0 : 1;
+            long nodesBefore = game.nodesSearched;
+            long start = System.nanoTime();
+            Action move = Agents.move(side == 0 ? white : black, game, player);
+            result.moveNanos[side] += System.nanoTime() - start;
+            result.nodes[side] += game.nodesSearched - nodesBefore;
+            result.moves[side]++;
+            game.makeMoves(move);
+            player = -player;
+        }
+        result.winner = game.getUtility(PawntasticGame.PLAYER1);
+        return result;
+    }
+
+    /**
+     * Play random moves from the starting position, none of them ending the game
+     * @param size the board size
+     * @param plies the number of moves, fewer if a position has nothing but moves that end the game
+     * @param random the random numbers
+     * @return the moves, packed (see Move)
+     */
+    static int[] randomOpening(int size, int plies, SplittableRandom random) {
+        PawntasticGame game = new PawntasticGame(size);
+        int[] opening = new int[plies];
+        int[] moves = new int[Move.MAX_MOVES];
+        int player = PawntasticGame.PLAYER2;
+        int length = 0;
+        while (length < plies) {
+            int count = game.generateMoves(player, moves);
+            int quiet = 0;
+            for (int i = 0; i < count; i++) {
+                if (!Move.isPromotion(moves[i]))
+                    moves[quiet++] = moves[i];
+            }
+            if (quiet == 0)
+                break;
+            int move = moves[random.nextInt(quiet)];
+            game.makeMove(move);
+            // a move that leaves the opponent without a move ends the game as well
+            if (game.isTerminalState()) {
+                break;
+            }
+            opening[length++] = move;
+            player = -player;
+        }
+        return java.util.Arrays.copyOf(opening, length);
+    }
+
+    /**
+     * Play every pair of agents against each other from the starting position
+     * @param size the board size
+     * @param agents the agent numbers
+     * @param gamesPerPair the games of each pair, both colors taking turns
+     * @param depth the cutoff depth of the H-minimax agents
+     * @param timeMillis the time budget per move, 0 for none
+     * @param threads the number of games played at once
+     * @return the standings, in the order of agents
+     */
+    public static Standing[] run(int size, int[] agents, int gamesPerPair, int depth, long timeMillis, int threads) {
+        return run(size, agents, gamesPerPair, depth, timeMillis, threads, 0, DEFAULT_SEED);
+    }
+
+    /**
+     * Play every pair of agents against each other, each two games of a pair from the same random opening
+     * @param size the board size
+     * @param agents the agent numbers
+     * @param gamesPerPair the games of each pair, both colors taking turns
+     * @param depth the cutoff depth of the H-minimax agents
+     * @param timeMillis the time budget per move, 0 for none
+     * @param threads the number of games played at once
+     * @param openingPlies the random moves before the agents take over, 0 to start from the starting position
+     * @param seed the seed of the openings, the same seed giving the same openings
+     * @return the standings, in the order of agents
+     */
+    public static Standing[] run(int size, int[] agents, int gamesPerPair, int depth, long timeMillis, int threads,
+            int openingPlies, long seed) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<Game>> games = new ArrayList<>();
+        Standing[] standings = new Standing[agents.length];
+        for (int i = 0; i < agents.length; i++) {
+            standings[i] = new Standing(agents[i]);
+        }
+        double[][] scores = new double[agents.length][agents.length]; // points of i against j
+        int[][] played = new int[agents.length][agents.length];
+        try {
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < agents.length; i++) {
+                for (int j = i + 1; j < agents.length; j++) {
+                    int[] opening = new int[0];
+                    for (int k = 0; k < gamesPerPair; k++) {
+                        int white = k % 2 == 0 ? agents[i] : agents[j];
+                        int black = k % 2 == 0 ? agents[j] : agents[i];
+                        if (k % 2 == 0 && openingPlies > 0)
+                            opening = randomOpening(size, openingPlies, random); // the next game replays it
+                        int[] moves = opening;
+                        games.add(pool.submit(() -> playGame(size, white, black, depth, timeMillis, moves)));
+                    }
+                }
+            }
+            int index = 0;
+            for (int i = 0; i < agents.length; i++) {
+                for (int j = i + 1; j < agents.length; j++) {
+                    for (int k = 0; k < gamesPerPair; k++) {
+                        Game game = games.get(index++).get();
+                        // i played WHITE in the even games
+                        int iSide = k % 2 == 0 ? 0 : 1;
+                        int iPlayer = iSide == 0 ? PawntasticGame.PLAYER2 : PawntasticGame.PLAYER1;
+                        double points = game.winner == iPlayer ? 1 : game.winner == 0 ? 0.5 : 0;
+                        scores[i][j] += points;
+                        scores[j][i] += 1 - points;
+                        played[i][j]++;
+                        played[j][i]++;
+                        record(standings[i], game, iSide, points);
+                        record(standings[j], game, 1 - iSide, 1 - points);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tournament game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        fitElo(standings, scores, played);
+        return standings;
+    }
+
+    // add one game to an agent's standing
+    private static void record(Standing standing, Game game, int side, double points) {
+        standing.games++;
+        if (points == 1)
+            standing.wins++;
+        else if (points == 0.5)
+            standing.draws++;
+        else
+            standing.losses++;
+        standing.moves += game.moves[side];
+        standing.moveNanos += game.moveNanos[side];
+        standing.nodes += game.nodes[side];
+    }
+
+    /**
+     * Fit Elo ratings to the results: move every rating toward the one under which its expected
+     * score against the field matches its actual score, until they settle, then center them on 1500
+     * @param standings the agents
+     * @param scores the points of each agent against each other one
+     * @param played the games of each pair
+     */
+    private static void fitElo(Standing[] standings, double[][] scores, int[][] played) {
+        int n = standings.length;
+        double[] elo = new double[n];
+        for (int iteration = 0; iteration < 10_000; iteration++) {
+            double change = 0;
+            for (int i = 0; i < n; i++) {
+                double actual = 0;
+                double expected = 0;
+                for (int j = 0; j < n; j++) {
+                    if (played[i][j] == 0)
+                        continue;
+                    // half a point of prior against each opponent keeps perfect scores finite
+                    actual += scores[i][j] + 0.5;
+                    expected += (played[i][j] + 1) / (1 + Math.pow(10, (elo[j] - elo[i]) / 400));
+                }
+                double step = 32 * (actual - expected) / Math.max(1, standings[i].games);
+                elo[i] += step;
+                change = Math.max(change, Math.abs(step));
+            }
+            if (change < 1e-6)
+                break;
+        }
+        double mean = 0;
+        for (double rating : elo)
+            mean += rating / n;
+        for (int i = 0; i < n; i++)
+            standings[i].elo = elo[i] - mean + ELO_MEAN;
+    }
+
+    /**
+     * Run a tournament and print the table
+     * Usage: java Tournament [boardSize] [agents, e.g. 1,4,5,6,7] [gamesPerPair] [depth] [timeMillis] [threads]
+     *        [openingPlies] [seed]
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        String[] names = (args.length > 1 ? args[1] : "1,4,5,6").split(",");
+        int gamesPerPair = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : H_MinimaxAlphaBeta.DEFAULT_DEPTH;
+        long time = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        int openingPlies = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+        long seed = args.length > 7 ? Long.parseLong(args[7]) : DEFAULT_SEED;
+        int[] agents = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            agents[i] = Integer.parseInt(names[i].trim());
+            if (!Agents.isAgent(agents[i]))
+                throw new IllegalArgumentException("Unknown agent: " + agents[i]);
+        }
+
+        long start = System.nanoTime();
+        Standing[] standings = run(size, agents, gamesPerPair, depth, time, threads, openingPlies, seed);
+        System.out.printf("%dx%d, %d games per pair, depth %d, %d ms per move, %d threads, %s, %.1f s%n", size,
+                size, gamesPerPair, depth, time, threads, openingPlies > 0 ? openingPlies
+                + " random opening plies (seed " + seed + ")" : "from the starting position",
+                (System.nanoTime() - start) / 1e9);
+        System.out.println("agent                 games    W    D    L  score    Elo  ms/move   nodes/move");
+        for (Standing s : standings) {
+            System.out.printf("%d %-18s %6d %4d %4d %4d %5.1f%% %6.0f %8.2f %12.0f%n", s.agent, Agents.NAMES[s.agent],
+                    s.games, s.wins, s.draws, s.losses, 100 * s.score(), s.elo,
+                    s.moves == 0 ? 0 : s.moveNanos / 1e6 / s.moves, s.moves == 0 ? 0 : (double) s.nodes / s.moves);
+        }
+    }
+}
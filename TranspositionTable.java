@@ -0,0 +1,145 @@
+// TranspositionTable class that remembers searched positions by Zobrist key
+// Entries live in two primitive arrays, in buckets of two: the first slot keeps the deepest
+// result, the second slot always takes the newest one
+// The table is shared by search threads without locks: a slot stores key ^ data next to data,
+// so an entry torn by two threads writing at once no longer matches its key and reads as a miss
+public class TranspositionTable {
+    public static final int EXACT = 1; // the score is the value of the position
+    public static final int LOWER = 2; // the score is a lower bound (the search failed high)
+    public static final int UPPER = 3; // the score is an upper bound (the search failed low)
+    public static final int MAX_DEPTH = 255; // depth stored for results searched to the end of the game
+    public static final int DEFAULT_MEGABYTES = 64;
+    private static final int ENTRY_BYTES = 16;
+
+    private static TranspositionTable shared;
+
+    private final long[] keys; // key ^ data
+    private final long[] data; // score | depth | bound | move, see pack
+    private final int bucketMask;
+
+    /**
+     * Constructor for the table
+     * @param megabytes the memory budget, rounded down to a power of two of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("Invalid table size: " + megabytes + " MB");
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES / 2);
+        buckets = Math.min(buckets, 1 << 29);
+        keys = new long[(int) buckets * 2];
+        data = new long[(int) buckets * 2];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Get the table shared by the minimax agents
+     * @return the shared table, created with the default budget on first use
+     */
+    public static synchronized TranspositionTable shared() {
+        if (shared == null) {
+            shared = new TranspositionTable(DEFAULT_MEGABYTES);
+        }
+        return shared;
+    }
+
+    /**
+     * Replace the shared table with an empty one of a new size
+     * @param megabytes the memory budget of the shared table
+     */
+    public static synchronized void configureShared(int megabytes) {
+        shared = new TranspositionTable(megabytes);
+    }
+
+    /**
+     * Look up a position
+     * @param key the position key
+     * @return the packed entry, or 0 if the position is not in the table
+     */
+    public long probe(long key) {
+        int slot = ((int) key & bucketMask) << 1;
+        long entry = data[slot];
+        if (entry != 0 && (keys[slot] ^ entry) == key)
+            return entry;
+        entry = data[slot + 1];
+        if (entry != 0 && (keys[slot + 1] ^ entry) == key)
+            return entry;
+        return 0L;
+    }
+
+    /**
+     * Store a search result
+     * @param key the position key
+     * @param depth the depth searched (MAX_DEPTH for an exact solve)
+     * @param bound EXACT, LOWER or UPPER
+     * @param score the score, from the side to move's point of view
+     * @param move the encoded best move (see PawntasticGame.encodeMove), 0 if none
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        int slot = ((int) key & bucketMask) << 1;
+        long entry = pack(depth, bound, score, move);
+        long deepest = data[slot];
+        boolean sameKey = (keys[slot] ^ deepest) == key;
+        if (sameKey || depth >= depth(deepest)) {
+            if (!sameKey && deepest != 0) {
+                // the deepest entry so far moves over to the always-replace slot
+                keys[slot + 1] = keys[slot];
+                data[slot + 1] = deepest;
+            }
+            keys[slot] = key ^ entry;
+            data[slot] = entry;
+        } else {
+            keys[slot + 1] = key ^ entry;
+            data[slot + 1] = entry;
+        }
+    }
+
+    /**
+     * Empty the table
+     */
+    public void clear() {
+        java.util.Arrays.fill(keys, 0L);
+        java.util.Arrays.fill(data, 0L);
+    }
+
+    // packed entry layout: score (32) | depth (8) | bound (2) | move (22)
+    private static long pack(int depth, int bound, int score, int move) {
+        return ((long) score << 32) | ((long) Math.min(depth, MAX_DEPTH) << 24)
+                | ((long) bound << 22) | (move & 0x3FFFFF);
+    }
+
+    /**
+     * Get the score of a packed entry
+     * @param entry the entry returned by probe
+     * @return the score, from the side to move's point of view
+     */
+    public static int score(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Get the depth of a packed entry
+     * @param entry the entry returned by probe
+     * @return the depth searched
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 24) & 0xFF;
+    }
+
+    /**
+     * Get the bound type of a packed entry
+     * @param entry the entry returned by probe
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 22) & 0x3;
+    }
+
+    /**
+     * Get the best move of a packed entry
+     * @param entry the entry returned by probe
+     * @return the encoded move, 0 if none
+     */
+    public static int move(long entry) {
+        return (int) entry & 0x3FFFFF;
+    }
+}
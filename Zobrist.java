@@ -0,0 +1,65 @@
+// Zobrist class with the random keys used to hash PawntasticGame positions
+public class Zobrist {
+    private static final int SQUARES = Bitboards.MAX_SIZE * Bitboards.MAX_SIZE;
+
+    private static final long[] BLACK = new long[SQUARES]; // PLAYER1 pawn on a cell
+    private static final long[] WHITE = new long[SQUARES]; // PLAYER2 pawn on a cell
+    private static final long[] SIZE = new long[Bitboards.MAX_SIZE + 1]; // keeps board sizes apart
+    private static final long BLACK_TO_MOVE;
+    private static final long QUIESCENCE; // the search goes on past its horizon, see settings
+
+    static {
+        // fixed seed so keys (and anything stored by key) are the same on every run
+        java.util.SplittableRandom random = new java.util.SplittableRandom(0x5EED_CAFE_F00DL);
+        for (int i = 0; i < SQUARES; i++) {
+            BLACK[i] = random.nextLong();
+            WHITE[i] = random.nextLong();
+        }
+        for (int i = 0; i < SIZE.length; i++) {
+            SIZE[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        QUIESCENCE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Key of a pawn on a cell
+     * @param piece PLAYER1 or PLAYER2
+     * @param square the cell index (row * boardSize + col)
+     * @return the key to XOR in or out of the position key
+     */
+    public static long piece(int piece, int square) {
+        return piece == PawntasticGame.PLAYER1 ? BLACK[square] : WHITE[square];
+    }
+
+    /**
+     * Key of an empty board of a given size
+     * @param boardSize the size of the board
+     * @return the starting value of the position key
+     */
+    public static long size(int boardSize) {
+        return SIZE[boardSize];
+    }
+
+    /**
+     * Key of the side to move, to XOR into a position key when it matters who moves next
+     * @param player the player to move
+     * @return the key for the player
+     */
+    public static long side(int player) {
+        return player == PawntasticGame.PLAYER1 ? BLACK_TO_MOVE : 0L;
+    }
+
+    /**
+     * Key of the game settings a search score depends on, to XOR into a position key when scores are stored
+     * @param quiescence whether the search goes on past its horizon (see PawntasticGame.quiescence)
+     * @param evaluation the tuned heuristic, null for the hand-written one
+     * @return 0 for the hand-written heuristic without quiescence, another key for every other setting
+     */
+    public static long settings(boolean quiescence, Evaluation evaluation) {
+        return (quiescence ? QUIESCENCE : 0L) ^ (evaluation == null ? 0L : evaluation.key);
+    }
+}
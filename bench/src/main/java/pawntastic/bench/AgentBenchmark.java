@@ -0,0 +1,94 @@
+package pawntastic.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// AgentBenchmark class that measures the depth-limited agents: the time a search to a depth takes and the
+// nodes it searches per second
+// A call searches the next benchmark position to the depth on a cleared transposition table: timeToDepth
+// scores the time of a search, nodesPerSecond the searches per second with their nodes per second as the
+// secondary result "nodes". The depths that take too long on the big boards can be left out with
+// e.g. -p depth=1,2,3
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentBenchmark {
+    @Param({"4", "5", "6", "8", "10"})
+    public int boardSize;
+
+    @Param({"4", "5"}) // H_Minimax, H_MinimaxAlphaBeta (see Agents)
+    public int agent;
+
+    @Param({"1", "2", "3", "4", "5"})
+    public int depth;
+
+    private Object[] games;
+    private int[] players;
+    private Object searcher;
+    private Object limits;
+    private int next;
+
+    /**
+     * Nodes class with the nodes of the measured searches, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        games = Game.games(boardSize);
+        players = Game.players(boardSize);
+        searcher = Game.agent(agent);
+        limits = Game.limits(depth, 0, 0, 1);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        Game.clearTable();
+    }
+
+    // search the next position
+    private Object search() {
+        int i = next;
+        next = i + 1 == games.length ? 0 : i + 1;
+        return Game.search(searcher, games[i], players[i], limits);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int timeToDepth() {
+        return Game.depth(search());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long nodesPerSecond(Nodes nodes) {
+        long searched = Game.nodes(search());
+        nodes.nodes += searched;
+        return searched;
+    }
+}
@@ -0,0 +1,284 @@
+package pawntastic.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+// Game class that reaches the game's classes for the benchmarks
+// The game is in the default package, which a class in a package cannot name, and JMH refuses benchmarks
+// in the default package; so the benchmarks hold games, agents and limits as Object and call them through
+// method handles. The handles are static final and called with invokeExact, which the JIT inlines like a
+// direct call, so the benchmarks measure the game and not the bridge
+public final class Game {
+    public static final int PLAYER1 = 1; // as PawntasticGame
+    public static final int PLAYER2 = -1;
+    public static final int MAX_MOVES; // Move.MAX_MOVES, the size of a move buffer
+
+    private static final MethodHandle POSITIONS;
+    private static final MethodHandle POSITION_GAME;
+    private static final MethodHandle POSITION_PLAYER;
+    private static final MethodHandle GET_ALL_LEGAL_MOVES;
+    private static final MethodHandle GENERATE_MOVES;
+    private static final MethodHandle MAKE_MOVE;
+    private static final MethodHandle UNMAKE_MOVE;
+    private static final MethodHandle GET_HASH_KEY;
+    private static final MethodHandle IS_TERMINAL_STATE;
+    private static final MethodHandle EVAL;
+    private static final MethodHandle CLONE_GAME;
+    private static final MethodHandle AGENT;
+    private static final MethodHandle SEARCH;
+    private static final MethodHandle NEW_LIMITS;
+    private static final MethodHandle RESULT_NODES;
+    private static final MethodHandle RESULT_DEPTH;
+    private static final MethodHandle CLEAR_TABLE;
+    private static final MethodHandle CLEAR_SOLVED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> game = Class.forName("PawntasticGame");
+            Class<?> position = Class.forName("Benchmark$Position");
+            Class<?> agent = Class.forName("SearchAgent");
+            Class<?> limits = Class.forName("SearchLimits");
+            Class<?> result = Class.forName("SearchResult");
+            Class<?> table = Class.forName("TranspositionTable");
+            MAX_MOVES = Class.forName("Move").getField("MAX_MOVES").getInt(null);
+
+            POSITIONS = lookup.findStatic(Class.forName("Benchmark"), "positions",
+                    MethodType.methodType(position.arrayType(), int.class))
+                    .asType(MethodType.methodType(Object[].class, int.class));
+            POSITION_GAME = lookup.findGetter(position, "game", game).asType(
+                    MethodType.methodType(Object.class, Object.class));
+            POSITION_PLAYER = lookup.findGetter(position, "player", int.class).asType(
+                    MethodType.methodType(int.class, Object.class));
+            GET_ALL_LEGAL_MOVES = virtual(lookup, game, "getAllLegalMoves", List.class, int.class);
+            GENERATE_MOVES = virtual(lookup, game, "generateMoves", int.class, int.class, int[].class);
+            MAKE_MOVE = virtual(lookup, game, "makeMove", int.class, int.class);
+            UNMAKE_MOVE = virtual(lookup, game, "unmakeMove", void.class, int.class, int.class);
+            GET_HASH_KEY = virtual(lookup, game, "getHashKey", long.class);
+            IS_TERMINAL_STATE = virtual(lookup, game, "isTerminalState", boolean.class);
+            EVAL = virtual(lookup, game, "eval", double.class, int.class);
+            CLONE_GAME = lookup.findVirtual(game, "cloneGame", MethodType.methodType(game)).asType(
+                    MethodType.methodType(Object.class, Object.class));
+            AGENT = lookup.findStatic(Class.forName("Agents"), "get", MethodType.methodType(agent, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class));
+            SEARCH = lookup.findVirtual(agent, "search", MethodType.methodType(result, game, int.class, limits))
+                    .asType(MethodType.methodType(Object.class, Object.class, Object.class, int.class, Object.class));
+            NEW_LIMITS = lookup.findConstructor(limits,
+                    MethodType.methodType(void.class, int.class, long.class, long.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class, long.class, long.class, int.class));
+            RESULT_NODES = lookup.findGetter(result, "nodes", long.class).asType(
+                    MethodType.methodType(long.class, Object.class));
+            RESULT_DEPTH = lookup.findGetter(result, "depth", int.class).asType(
+                    MethodType.methodType(int.class, Object.class));
+            MethodHandle shared = lookup.findStatic(table, "shared", MethodType.methodType(table));
+            CLEAR_TABLE = MethodHandles.filterReturnValue(shared,
+                    lookup.findVirtual(table, "clear", MethodType.methodType(void.class)));
+            CLEAR_SOLVED = lookup.findStatic(Class.forName("ProofNumberSearch"), "clearSolved",
+                    MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Game() {
+    }
+
+    // an instance method of the game, with the game as Object
+    private static MethodHandle virtual(MethodHandles.Lookup lookup, Class<?> game, String name, Class<?> returnType,
+            Class<?>... parameters) throws ReflectiveOperationException {
+        MethodHandle method = lookup.findVirtual(game, name, MethodType.methodType(returnType, parameters));
+        return method.asType(method.type().changeParameterType(0, Object.class));
+    }
+
+    // a failure of the game itself, rethrown as is
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new IllegalStateException(e);
+    }
+
+    /**
+     * Get the benchmark positions of a board size (see Benchmark.positions)
+     * @param size the board size
+     * @return the games of the positions
+     */
+    public static Object[] games(int size) {
+        try {
+            Object[] positions = (Object[]) POSITIONS.invokeExact(size);
+            Object[] games = new Object[positions.length];
+            for (int i = 0; i < positions.length; i++)
+                games[i] = (Object) POSITION_GAME.invokeExact(positions[i]);
+            return games;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Get the side to move of the benchmark positions of a board size
+     * @param size the board size
+     * @return the players, in the order of games
+     */
+    public static int[] players(int size) {
+        try {
+            Object[] positions = (Object[]) POSITIONS.invokeExact(size);
+            int[] players = new int[positions.length];
+            for (int i = 0; i < positions.length; i++)
+                players[i] = (int) POSITION_PLAYER.invokeExact(positions[i]);
+            return players;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static List<?> getAllLegalMoves(Object game, int player) {
+        try {
+            return (List<?>) GET_ALL_LEGAL_MOVES.invokeExact(game, player);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static int generateMoves(Object game, int player, int[] moves) {
+        try {
+            return (int) GENERATE_MOVES.invokeExact(game, player, moves);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static int makeMove(Object game, int move) {
+        try {
+            return (int) MAKE_MOVE.invokeExact(game, move);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static void unmakeMove(Object game, int move, int undo) {
+        try {
+            UNMAKE_MOVE.invokeExact(game, move, undo);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static long getHashKey(Object game) {
+        try {
+            return (long) GET_HASH_KEY.invokeExact(game);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static boolean isTerminalState(Object game) {
+        try {
+            return (boolean) IS_TERMINAL_STATE.invokeExact(game);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static double eval(Object game, int player) {
+        try {
+            return (double) EVAL.invokeExact(game, player);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static Object cloneGame(Object game) {
+        try {
+            return (Object) CLONE_GAME.invokeExact(game);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Get an agent by its number (see Agents)
+     * @param agent the agent number
+     * @return the agent
+     */
+    public static Object agent(int agent) {
+        try {
+            return (Object) AGENT.invokeExact(agent);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Get search limits (see SearchLimits)
+     * @param depth the deepest iteration, 0 for the agent's default
+     * @param nodes the most nodes, 0 for no cap
+     * @param timeMillis the time budget in milliseconds, 0 for none
+     * @param threads the threads to search on
+     * @return the limits
+     */
+    public static Object limits(int depth, long nodes, long timeMillis, int threads) {
+        try {
+            return (Object) NEW_LIMITS.invokeExact(depth, nodes, timeMillis, threads);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Let an agent search a position (see SearchAgent.search)
+     * @param agent the agent
+     * @param game the game configuration, left as it was
+     * @param player the player to move
+     * @param limits the search limits
+     * @return the search result
+     */
+    public static Object search(Object agent, Object game, int player, Object limits) {
+        try {
+            return (Object) SEARCH.invokeExact(agent, game, player, limits);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static long nodes(Object result) {
+        try {
+            return (long) RESULT_NODES.invokeExact(result);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static int depth(Object result) {
+        try {
+            return (int) RESULT_DEPTH.invokeExact(result);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Clear the transposition table shared by the minimax agents
+     */
+    public static void clearTable() {
+        try {
+            CLEAR_TABLE.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Clear the positions the solver has proven, kept for every solver (see ProofNumberSearch.clearSolved)
+     */
+    public static void clearSolved() {
+        try {
+            CLEAR_SOLVED.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package pawntastic.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// GameBenchmark class that measures move generation, terminal detection, evaluation and cloning
+// Each call works on the next of the benchmark positions of the board size (see Benchmark.positions), so a
+// score is the operations per second over all of them, the same positions on every run
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    @Param({"4", "5", "6", "8", "10"})
+    public int boardSize;
+
+    private Object[] games;
+    private int[] players;
+    private int[] moves;
+    private int next;
+
+    @Setup
+    public void setup() {
+        games = Game.games(boardSize);
+        players = Game.players(boardSize);
+        moves = new int[Game.MAX_MOVES];
+    }
+
+    // the index of the position of this call
+    private int position() {
+        int position = next;
+        next = position + 1 == games.length ? 0 : position + 1;
+        return position;
+    }
+
+    @Benchmark
+    public int getAllLegalMoves() {
+        int i = position();
+        return Game.getAllLegalMoves(games[i], players[i]).size();
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        int i = position();
+        return Game.generateMoves(games[i], players[i], moves);
+    }
+
+    @Benchmark
+    public long makeUnmakeMove() {
+        int i = position();
+        Object game = games[i];
+        int count = Game.generateMoves(game, players[i], moves);
+        long total = 0;
+        for (int j = 0; j < count; j++) {
+            int undo = Game.makeMove(game, moves[j]);
+            total += Game.getHashKey(game);
+            Game.unmakeMove(game, moves[j], undo);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public boolean isTerminalState() {
+        return Game.isTerminalState(games[position()]);
+    }
+
+    @Benchmark
+    public double eval() {
+        int i = position();
+        return Game.eval(games[i], players[i]);
+    }
+
+    @Benchmark
+    public Object cloneGame() {
+        return Game.cloneGame(games[position()]);
+    }
+}
@@ -0,0 +1,88 @@
+package pawntastic.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// MctsBenchmark class that measures the Monte Carlo agent and the random agent
+// Mcts searches the next benchmark position for a fixed number of playouts, on a fresh copy of it so no tree
+// is reused; the score is the searches per second and the playouts come out as the secondary result "nodes",
+// in playouts per second
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MctsBenchmark {
+    public static final int PLAYOUTS = 10_000;
+    private static final int MCTS = 6; // see Agents
+    private static final int RANDOM = 1;
+
+    @Param({"4", "5", "6", "8", "10"})
+    public int boardSize;
+
+    private Object[] games;
+    private int[] players;
+    private Object mcts;
+    private Object random;
+    private Object limits;
+    private int next;
+
+    /**
+     * Nodes class with the playouts of the measured searches, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        games = Game.games(boardSize);
+        players = Game.players(boardSize);
+        mcts = Game.agent(MCTS);
+        random = Game.agent(RANDOM);
+        limits = Game.limits(0, PLAYOUTS, 0, 1);
+    }
+
+    // the index of the position of this call
+    private int position() {
+        int position = next;
+        next = position + 1 == games.length ? 0 : position + 1;
+        return position;
+    }
+
+    @Benchmark
+    public long playouts(Nodes nodes) {
+        int i = position();
+        Object result = Game.search(mcts, Game.cloneGame(games[i]), players[i], limits);
+        long playouts = Game.nodes(result);
+        nodes.nodes += playouts;
+        return playouts;
+    }
+
+    @Benchmark
+    public Object randomMove() {
+        int i = position();
+        return Game.search(random, games[i], players[i], limits);
+    }
+}
@@ -0,0 +1,82 @@
+package pawntastic.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// SolveBenchmark class that measures the agents that play the game out to its end: the time they take to
+// solve the starting position and the nodes they search per second
+// A call solves the starting position from scratch, the transposition table and the solver's proven
+// positions cleared first: timeToSolve scores the time of a solve, nodesPerSecond the solves per second
+// with their nodes per second as the secondary result "nodes". Minimax takes seconds on 5x5 and the
+// others solve 6x6 as well, e.g. -p agent=3,7 -p boardSize=6
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+    @Param({"4", "5"})
+    public int boardSize;
+
+    @Param({"2", "3", "7"}) // Minimax, MinimaxAlphaBeta, ProofNumberSearch (see Agents)
+    public int agent;
+
+    private Object game;
+    private Object solver;
+    private Object limits;
+
+    /**
+     * Nodes class with the nodes of the measured solves, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        game = Game.games(boardSize)[0]; // the starting position
+        solver = Game.agent(agent);
+        limits = Game.limits(0, 0, 0, 1);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTables() {
+        Game.clearTable();
+        Game.clearSolved();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object timeToSolve() {
+        return Game.search(solver, game, Game.PLAYER2, limits);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long nodesPerSecond(Nodes nodes) {
+        long searched = Game.nodes(Game.search(solver, game, Game.PLAYER2, limits));
+        nodes.nodes += searched;
+        return searched;
+    }
+}